@@ -0,0 +1,122 @@
+package com.skedgo.converter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The throughput and latency of TimezoneMapper.latLngToTimezoneString() on three workloads:
+ *   uniform       points spread evenly over the globe, mostly ocean
+ *   nearCities    points within a degree of big cities, where real queries come from.  Round the coastal
+ *                 ones (Sydney, Singapore, New York) that takes in sea as well as land, so not every point
+ *                 is on land, though the data gives the offshore ones the city's zone too
+ *   borderCities  the border-hugging places that TimeZoneMapperConverter checks, plus a few more
+ * Each is measured both as ops/s and as a sampled per-op latency distribution, and the jmh profile
+ * in pom.xml adds the GC profiler for the allocation rate.  To measure the array-walking engine instead,
+ * add  -jvmArgsAppend -Dcom.skedgo.converter.TimezoneMapper.engine=tree  to jmh.args.  gridDegrees is the
+ * cell size passed to TimezoneMapper.useGrid(), with 0 for no grid.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LookupBenchmark {
+
+    private static final int NUM_POINTS = 1 << 16;
+
+    private static final double[][] CITIES = {
+        { 40.7128, -74.0060 }, { 34.0522, -118.2437 }, { 41.8781, -87.6298 }, { 19.4326, -99.1332 },
+        { 43.6532, -79.3832 }, { -23.5505, -46.6333 }, { -34.6037, -58.3816 }, { 4.7110, -74.0721 },
+        { -12.0464, -77.0428 }, { 51.5074, -0.1278 }, { 48.8566, 2.3522 }, { 52.5200, 13.4050 },
+        { 55.7558, 37.6173 }, { 41.0082, 28.9784 }, { 30.0444, 31.2357 }, { 6.5244, 3.3792 },
+        { -1.2921, 36.8219 }, { -26.2041, 28.0473 }, { 25.2048, 55.2708 }, { 35.6892, 51.3890 },
+        { 28.6139, 77.2090 }, { 19.0760, 72.8777 }, { 23.8103, 90.4125 }, { 13.7563, 100.5018 },
+        { 1.3521, 103.8198 }, { -6.2088, 106.8456 }, { 39.9042, 116.4074 }, { 31.2304, 121.4737 },
+        { 22.3193, 114.1694 }, { 37.5665, 126.9780 }, { 35.6762, 139.6503 }, { 14.5995, 120.9842 },
+        { -33.8688, 151.2093 }, { -37.8136, 144.9631 }, { -36.8485, 174.7633 }, { 64.1466, -21.9426 },
+    };
+
+    private static final double[][] BORDER_CITIES = {
+        { 35.03217, -85.19392 },        // Chattanooga, near the Central/Eastern boundary
+        { 42.75676, -0.092723 },        // French Pyrenees, very close to the Spanish border
+        { -28.019981, 153.428073 },     // Gold Coast, near the New South Wales border
+        { 33.84531, -116.50513 },       // Palm Springs
+        { 46.51951, 12.008678 },        // northern Italy, near Austria
+        { 40.64278, 19.65083 },         // Albania
+        { 45.61667, 63.31667 },         // Baykonyr
+        { 42.3314, -83.0458 },          // Detroit, across the river from Windsor
+        { 32.5149, -117.0382 },         // Tijuana
+        { 31.7619, -106.4850 },         // El Paso, next to Ciudad Juarez and the Mountain/Central boundary
+        { 47.5596, 7.5886 },            // Basel, at the French and German borders
+        { 46.2044, 6.1432 },            // Geneva
+        { 54.7104, 20.4522 },           // Kaliningrad
+        { 1.4655, 103.7578 },           // Johor Bahru, across the strait from Singapore
+        { -25.5163, -54.5854 },         // Foz do Iguacu, at the triple frontier
+    };
+
+    @Param({ "0", "0.25" })
+    private double gridDegrees;
+
+    private int next;
+    private double[] uniformLats, uniformLngs, cityLats, cityLngs, borderLats, borderLngs;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(42);
+        uniformLats = new double[NUM_POINTS];
+        uniformLngs = new double[NUM_POINTS];
+        cityLats = new double[NUM_POINTS];
+        cityLngs = new double[NUM_POINTS];
+        borderLats = new double[NUM_POINTS];
+        borderLngs = new double[NUM_POINTS];
+        for (int i=0; i < NUM_POINTS; i++) {
+            uniformLats[i] = random.nextDouble() * 180 - 90;
+            uniformLngs[i] = random.nextDouble() * 360 - 180;
+            double[] city = CITIES[random.nextInt(CITIES.length)];
+            cityLats[i] = city[0] + random.nextDouble() * 2 - 1;
+            cityLngs[i] = city[1] + random.nextDouble() * 2 - 1;
+            double[] border = BORDER_CITIES[i % BORDER_CITIES.length];
+            borderLats[i] = border[0];
+            borderLngs[i] = border[1];
+        }
+        // Warm up the lazily created polygons, so that they aren't counted in the first iteration:
+        TimezoneMapper.preloadPolygons();
+        TimezoneMapper.useGrid(gridDegrees);
+    }
+
+    @Benchmark
+    public String uniform()
+    {
+        int i = next++ & (NUM_POINTS - 1);
+        return TimezoneMapper.latLngToTimezoneString(uniformLats[i], uniformLngs[i]);
+    }
+
+    @Benchmark
+    public String nearCities()
+    {
+        int i = next++ & (NUM_POINTS - 1);
+        return TimezoneMapper.latLngToTimezoneString(cityLats[i], cityLngs[i]);
+    }
+
+    @Benchmark
+    public String borderCities()
+    {
+        int i = next++ & (NUM_POINTS - 1);
+        return TimezoneMapper.latLngToTimezoneString(borderLats[i], borderLngs[i]);
+    }
+}
@@ -0,0 +1,14 @@
+package com.skedgo.converter;
+
+
+/**
+ * Which of the jar's class versions are in use: this one is the Java 8 baseline, and the multi-release
+ * jar has copies in META-INF/versions/17 and /21 which the JVM picks instead when it's new enough.
+ */
+final class MultiRelease {
+    // A method, not a constant, which callers would compile in:
+    static int version()
+    {
+        return 8;
+    }
+}
@@ -0,0 +1,33 @@
+package com.skedgo.converter;
+
+
+/**
+ * Tests a batch of points against one polygon, for TimezoneBatch.  This version tests them one at a time
+ * with TzPolygon.contains().  On Java 17 and later, the multi-release jar also has VectorPolygonKernel,
+ * which tests several points at once with the Vector API; it's used if the JVM was started with
+ * --add-modules jdk.incubator.vector, and the system property com.skedgo.converter.TimezoneBatch.kernel
+ * isn't "scalar".
+ */
+class PolygonKernel {
+    static final PolygonKernel INSTANCE = choose();
+
+    /** Sets inside[p] to whether polygon 'poly' contains (ys[p],xs[p]), for each p below count. */
+    void contains(int poly, float[] ys, float[] xs, int count, boolean[] inside)
+    {
+        for (int p = 0; p < count; p++)
+            inside[p] = TimezoneMapper.polygonContains(poly, ys[p], xs[p]);
+    }
+
+    static PolygonKernel choose()
+    {
+        if ("scalar".equals(System.getProperty("com.skedgo.converter.TimezoneBatch.kernel")))
+            return new PolygonKernel();
+        try {
+            return (PolygonKernel) Class.forName("com.skedgo.converter.VectorPolygonKernel").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            // Before Java 17, or without the incubator module:
+            return new PolygonKernel();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.skedgo.converter;
+
+import java.util.Arrays;
+
+
+/**
+ * A faster TimezoneMapper.latLngToTimezoneIndices(), for big batches, which stays out of TimezoneMapper so that
+ * the generated file still works on its own.  Each point is first placed in its 2KD-tree leaf, which answers it
+ * straight away if the leaf has a single timezone.  The rest are grouped by leaf, and each group is tested against
+ * the leaf's polygons together, by PolygonKernel, which can use the CPU's vector instructions to test several
+ * points at a time.  Gives the same answers as looking them up one by one.
+ */
+public class TimezoneBatch {
+
+    /** Sets out[i] to the timezone index of (lats[i],lngs[i]), for i in offset..offset+len-1, as
+     * TimezoneMapper.latLngToTimezoneIndices() does.  Use TimezoneMapper.timezoneIndexToString() to turn an
+     * index into a timezone id. */
+    public static void latLngToTimezoneIndices(double[] lats, double[] lngs, int offset, int len, short[] out)
+    {
+        int end = offset + len;
+        float[] bounds = new float[4];
+
+        // The points in leaves with polygons, as leaf << 32 | point, so that sorting them groups them by leaf:
+        long[] pending = new long[len];
+        int numPending = 0;
+        for (int p = offset; p < end; p++) {
+            int leaf = TimezoneMapper.findLeaf((float) lats[p], (float) lngs[p], bounds);
+            int word = TimezoneMapper.Tree.nodes[leaf];
+            if ((word & 3) == 2)
+                out[p] = (short) (word >>> 2);
+            else
+                pending[numPending++] = (long) leaf << 32 | p;
+        }
+        Arrays.sort(pending, 0, numPending);
+
+        float[] ys = new float[numPending], xs = new float[numPending];
+        boolean[] inside = new boolean[numPending];
+        boolean[] decided = new boolean[numPending];
+        int[] leaves = TimezoneMapper.Tree.leaves;
+        for (int start = 0, stop; start < numPending; start = stop) {
+            int leaf = (int) (pending[start] >>> 32);
+            for (stop = start; stop < numPending && (int) (pending[stop] >>> 32) == leaf; stop++) {
+                int p = (int) pending[stop];
+                ys[stop - start] = (float) lats[p];
+                xs[stop - start] = (float) lngs[p];
+                decided[stop - start] = false;
+            }
+            int count = stop - start;
+
+            // The first polygon that contains a point decides it, as in leafTz():
+            int polygons = TimezoneMapper.Tree.nodes[leaf] >>> 2;
+            int left = count;
+            for (int i = polygons + 2; i < polygons + 2 + 2 * leaves[polygons] && left > 0; i += 2) {
+                PolygonKernel.INSTANCE.contains(leaves[i], ys, xs, count, inside);
+                for (int k=0; k < count; k++) {
+                    if (inside[k] && ! decided[k]) {
+                        decided[k] = true;
+                        out[(int) pending[start + k]] = (short) leaves[i+1];
+                        left--;
+                    }
+                }
+            }
+            for (int k=0; k < count; k++)
+                if (! decided[k])
+                    out[(int) pending[start + k]] = (short) leaves[polygons + 1];
+        }
+    }
+}
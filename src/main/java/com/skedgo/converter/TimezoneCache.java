@@ -0,0 +1,92 @@
+package com.skedgo.converter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A cache in front of TimezoneMapper, for workloads that keep looking up the same places: depots, airports,
+ * fixed sensors.  Coordinates are quantized to a resolution given up front, and every point in a quantum
+ * gets the answer found for the first of them, so choose a resolution well inside the accuracy you need
+ * (0.0001 degrees is about 11m).
+ *
+ * The table is a fixed-size open-addressing hash table.  Each entry packs the quantized key and the timezone
+ * index into a single long, so reads and writes are single atomic operations and no locks are needed.  A key
+ * can go in any of PROBES consecutive slots, and when they're all taken the new entry overwrites the first.
+ * Instances can be shared between any number of threads.
+ */
+public class TimezoneCache {
+    private static final int KEY_BITS = 24;     // for each of the quantized lat and lng
+    private static final int PROBES = 4;
+
+    private final double perDegree;
+    private final AtomicLongArray table;        // key << 16 | (tz + 1), or 0 for an empty slot
+    private final int shift;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** The capacity is rounded up to a power of 2, and the table takes 8 bytes per entry. */
+    public TimezoneCache(double resolutionDegrees, int capacity)
+    {
+        perDegree = 1 / resolutionDegrees;
+        if (! (360 * perDegree < 1 << KEY_BITS))
+            throw new IllegalArgumentException("The resolution can't be finer than " + 360.0 / (1 << KEY_BITS) + " degrees");
+        if (capacity < PROBES || capacity > 1 << 30)
+            throw new IllegalArgumentException("Bad capacity: " + capacity);
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        table = new AtomicLongArray(size);
+        shift = 64 - Integer.numberOfTrailingZeros(size);
+    }
+
+    public String latLngToTimezoneString(double lat, double lng)
+    {
+        return TimezoneMapper.timezoneIndexToString(latLngToTimezoneIndex(lat, lng));
+    }
+
+    public int latLngToTimezoneIndex(double lat, double lng)
+    {
+        if (! (lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180))
+            return TimezoneMapper.lookup((float) lat, (float) lng);
+        long key = (long) ((lat + 90) * perDegree) << KEY_BITS | (long) ((lng + 180) * perDegree);
+        int mask = table.length() - 1;
+        int slot = (int) (key * 0x9E3779B97F4A7C15L >>> shift);
+        for (int i=0; i < PROBES; i++) {
+            long entry = table.get((slot + i) & mask);
+            if (entry == 0)
+                break;
+            if (entry >>> 16 == key) {
+                hits.increment();
+                return (int) (entry & 0xffff) - 1;
+            }
+        }
+        misses.increment();
+
+        int tz = TimezoneMapper.lookup((float) lat, (float) lng);
+        long entry = key << 16 | (tz + 1);
+        for (int i=0; i < PROBES; i++) {
+            if (table.compareAndSet((slot + i) & mask, 0, entry))
+                return tz;
+        }
+        table.set(slot, entry);
+        return tz;
+    }
+
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    /** Empties the cache and zeroes the counters. */
+    public void clear()
+    {
+        for (int i=0; i < table.length(); i++)
+            table.set(i, 0);
+        hits.reset();
+        misses.reset();
+    }
+}
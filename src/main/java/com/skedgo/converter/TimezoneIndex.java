@@ -0,0 +1,156 @@
+package com.skedgo.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * An alternative to TimezoneMapper which answers the same queries from the binary index file written
+ * by TimeZoneMapperConverter, rather than from generated source.  The file is memory-mapped and
+ * queries read the tree and the polygons straight out of it, so there are no objects per polygon,
+ * and the data can be updated without recompiling.
+ *
+ * The format is described in TimeZoneMapperConverter.BinaryIndex.  Instances are immutable and
+ * can be shared between threads.
+ */
+public class TimezoneIndex {
+    public static final int MAGIC = 0x545a4958;     // "TZIX"
+    public static final int VERSION = 1;
+
+    /** The index for the same data as TimezoneMapper, next to this class on the classpath when the "index" jar is. */
+    public static final String DEFAULT_RESOURCE = "TimezoneMapper.bin";
+
+    private static final int LAT = 0, LNG = 1, PURE = 2;
+
+    private final ByteBuffer buffer;
+    private final int nodes, leaves, polygonStarts, coords;
+    private final String[] timezoneStrings;
+
+    public static TimezoneIndex open(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TimezoneIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Resources inside a jar can't be mapped, so this copies the index into a direct buffer instead. */
+    public static TimezoneIndex fromResource(String name) throws IOException
+    {
+        try (InputStream in = TimezoneIndex.class.getResourceAsStream(name)) {
+            if (in == null)
+                throw new IOException("Can't find resource " + name);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[65536];
+            int n;
+            while ((n = in.read(chunk)) > 0)
+                bytes.write(chunk, 0, n);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+            buffer.put(bytes.toByteArray());
+            buffer.flip();
+            return new TimezoneIndex(buffer);
+        }
+    }
+
+    public TimezoneIndex(ByteBuffer _buffer) throws IOException
+    {
+        buffer = _buffer.duplicate();
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a timezone index");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported timezone index version " + buffer.getInt(4));
+        int numNodes = buffer.getInt(8);
+        int numLeafInts = buffer.getInt(12);
+        int numPolygons = buffer.getInt(16);
+        int numCoords = buffer.getInt(20);
+        int numTimezones = buffer.getInt(24);
+        nodes = 28;
+        leaves = nodes + 8 * numNodes;
+        polygonStarts = leaves + 4 * numLeafInts;
+        coords = polygonStarts + 4 * (numPolygons + 1);
+
+        // The strings are few and small, so they're the only thing we copy onto the heap:
+        timezoneStrings = new String[numTimezones];
+        int pos = coords + 4 * numCoords;
+        for (int i=0; i < numTimezones; i++) {
+            int len = buffer.getShort(pos) & 0xffff;
+            byte[] utf = new byte[len];
+            for (int j=0; j < len; j++)
+                utf[j] = buffer.get(pos + 2 + j);
+            timezoneStrings[i] = new String(utf, StandardCharsets.UTF_8);
+            pos += 2 + len;
+        }
+    }
+
+    public String latLngToTimezoneString(double lat, double lng)
+    {
+        return timezoneStrings[getTzInt((float) lat, (float) lng)];
+    }
+
+    public String timezoneIndexToString(int tzIndex)
+    {
+        return timezoneStrings[tzIndex];
+    }
+
+    public int numTimezones()
+    {
+        return timezoneStrings.length;
+    }
+
+    /** The same walk as the generated TimezoneMapper.getTzInt(), using absolute reads so it's thread-safe. */
+    public int getTzInt(float lat, float lng)
+    {
+        int node = 0;
+        while (true) {
+            int at = nodes + 8 * node;
+            int word = buffer.getInt(at);
+            switch (word & 3) {
+                case LAT:
+                    node = lat < buffer.getFloat(at + 4) ? node + 1 : word >>> 2;
+                    break;
+                case LNG:
+                    node = lng < buffer.getFloat(at + 4) ? node + 1 : word >>> 2;
+                    break;
+                case PURE:
+                    return word >>> 2;
+                default:
+                    int leaf = leaves + 4 * (word >>> 2);
+                    int count = buffer.getInt(leaf);
+                    for (int i=0; i < count; i++) {
+                        int entry = leaf + 8 + 8 * i;
+                        if (contains(buffer.getInt(entry), lat, lng))
+                            return buffer.getInt(entry + 4);
+                    }
+                    return buffer.getInt(leaf + 4);
+            }
+        }
+    }
+
+    /**
+     * A ray-casting test of the polygon's points, read from the buffer.  TzPolygon.contains() multiplies by each
+     * edge's slope, worked out in advance, where this divides, as the index has no slopes in it; the two can round
+     * differently, so a point within a rounding error of an edge can be inside by one and outside by the other.
+     */
+    private boolean contains(int polygon, float testy, float testx)
+    {
+        int start = coords + 4 * buffer.getInt(polygonStarts + 4 * polygon);
+        int end = coords + 4 * buffer.getInt(polygonStarts + 4 * polygon + 4);
+        boolean inside = false;
+        float yj = buffer.getFloat(end - 8);
+        float xj = buffer.getFloat(end - 4);
+        for (int i = start; i < end; i += 8) {
+            float yi = buffer.getFloat(i);
+            float xi = buffer.getFloat(i + 4);
+            if ( ((yi>testy) != (yj>testy)) && (testx < (xj-xi) * (testy-yi) / (yj-yi) + xi - 0.0001f))
+                inside = !inside;
+            xj = xi;
+            yj = yi;
+        }
+        return inside;
+    }
+}
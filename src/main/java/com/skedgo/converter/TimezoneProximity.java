@@ -0,0 +1,207 @@
+package com.skedgo.converter;
+
+import java.util.Arrays;
+
+
+/**
+ * Lookups that look beyond the point itself, using the 2KD-tree as the spatial index: a subtree is only visited
+ * if its rectangle comes within the distance being searched, and then only the edges of the polygons in the
+ * leaves that are left get measured.
+ *
+ * Distances are in metres, measured on a flat projection centred on the point (a degree of latitude is
+ * METRES_PER_DEGREE, and a degree of longitude that times the cosine of the point's latitude), which is close
+ * enough at the few kilometres these are meant for.  A leaf's default timezone is taken to fill the whole leaf
+ * outside its polygons, and each polygon's zone the whole polygon outside the polygons before it, as lookups go
+ * through them in that order; from inside those, they're taken to be as near as the nearest of their edges.
+ */
+public class TimezoneProximity {
+    // The length of a degree of latitude, on a sphere of radius 6371km:
+    static final double METRES_PER_DEGREE = 111195;
+
+    /**
+     * The timezone at (lat,lng), or if that's "unknown", the nearest timezone whose area comes within maxMetres of it,
+     * so that a point on a beach or in a harbour that falls just outside the simplified polygons still gets an answer.
+     * Gives 0 if there's none that close.
+     */
+    public static int nearestTimezoneIndex(double lat, double lng, double maxMetres)
+    {
+        int tz = TimezoneMapper.lookup((float) lat, (float) lng);
+        if (tz != 0 || ! (maxMetres > 0))
+            return tz;
+        return searchNearest(lat, lng, maxMetres);
+    }
+
+    public static String nearestTimezoneString(double lat, double lng, double maxMetres)
+    {
+        return TimezoneMapper.timezoneIndexToString(nearestTimezoneIndex(lat, lng, maxMetres));
+    }
+
+    /**
+     * The indices of every timezone whose area comes within the given number of metres of (lat,lng), including the
+     * one it's in, in ascending order.  "Unknown" (0) isn't included.
+     */
+    public static int[] timezonesWithin(double lat, double lng, double metres)
+    {
+        Search search = new Search(lat, Math.max(metres, 0));
+        search.found = new int[4];
+        search(search, lat, lng);
+        int[] result = Arrays.copyOf(search.found, search.foundCount);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** The nearest known timezone within maxMetres of (lat,lng), without looking up the point itself first, or 0. */
+    static int searchNearest(double lat, double lng, double maxMetres)
+    {
+        Search search = new Search(lat, maxMetres);
+        search(search, lat, lng);
+        return search.bestTz;
+    }
+
+    private static void search(Search search, double lat, double lng)
+    {
+        search.nearest(lat, lng);
+        // Near the antimeridian, also look at the other side of it:
+        double reach = search.bestMetres / (METRES_PER_DEGREE * search.cosLat);
+        if (lng - reach < -180)
+            search.nearest(lat, lng + 360);
+        if (lng + reach >= 180)
+            search.nearest(lat, lng - 360);
+    }
+
+    /**
+     * The state of one search, so that the walk down the tree doesn't allocate anything.  It either looks for the
+     * nearest timezone, closing in as it finds nearer ones, or if 'found' is set, collects every timezone within
+     * bestMetres.
+     */
+    private static class Search {
+        final double cosLat;
+        double lat, lng;
+        double bestMetres;
+        int bestTz;
+        int[] found;
+        int foundCount;
+
+        Search(double _lat, double maxMetres)
+        {
+            cosLat = Math.max(Math.cos(Math.toRadians(_lat)), 1e-6);
+            bestMetres = maxMetres;
+        }
+
+        void nearest(double _lat, double _lng)
+        {
+            lat = _lat;
+            lng = _lng;
+            nearest(0, -90, 90, -180, 180);
+        }
+
+        private void nearest(int node, double latFrom, double latTo, double lngFrom, double lngTo)
+        {
+            if (rectMetres(latFrom, latTo, lngFrom, lngTo) > bestMetres)
+                return;
+            int word = TimezoneMapper.Tree.nodes[node];
+            float pivot = TimezoneMapper.Tree.pivots[node];
+            switch (word & 3) {
+                case 0:
+                    // The side the point is on first, as that's where the nearest timezone most likely is:
+                    if (lat < pivot) {
+                        nearest(node + 1, latFrom, pivot, lngFrom, lngTo);
+                        nearest(word >>> 2, pivot, latTo, lngFrom, lngTo);
+                    }
+                    else {
+                        nearest(word >>> 2, pivot, latTo, lngFrom, lngTo);
+                        nearest(node + 1, latFrom, pivot, lngFrom, lngTo);
+                    }
+                    break;
+                case 1:
+                    if (lng < pivot) {
+                        nearest(node + 1, latFrom, latTo, lngFrom, pivot);
+                        nearest(word >>> 2, latFrom, latTo, pivot, lngTo);
+                    }
+                    else {
+                        nearest(word >>> 2, latFrom, latTo, pivot, lngTo);
+                        nearest(node + 1, latFrom, latTo, lngFrom, pivot);
+                    }
+                    break;
+                case 2:
+                    offer(word >>> 2, rectMetres(latFrom, latTo, lngFrom, lngTo));
+                    break;
+                default:
+                    // The polygons before the default, as leafTz() tests them first:
+                    int[] leaves = TimezoneMapper.Tree.leaves;
+                    int leaf = word >>> 2;
+                    int end = leaf + 2 + 2 * leaves[leaf];
+                    // Where the point is in a polygon, the zones of the polygons after it, and the default, only
+                    // start beyond it, so they can be no nearer than the nearest edge of the polygons before them:
+                    double leafMetres = rectMetres(latFrom, latTo, lngFrom, lngTo);
+                    boolean covered = false;
+                    double nearestEdge = Double.POSITIVE_INFINITY;
+                    for (int i = leaf + 2; i < end; i += 2) {
+                        boolean offering = leaves[i+1] != 0 && ! isFound(leaves[i+1]);
+                        if (! offering && leafMetres > 0)
+                            continue;
+                        boolean inside = leafMetres == 0 && polygonContains(leaves[i]);
+                        double edge = edgeMetres(leaves[i]);
+                        if (offering)
+                            offer(leaves[i+1], Math.max(inside ? 0 : edge, covered ? nearestEdge : 0));
+                        covered |= inside;
+                        nearestEdge = Math.min(nearestEdge, edge);
+                    }
+                    offer(leaves[leaf+1], covered ? nearestEdge : leafMetres);
+            }
+        }
+
+        private boolean isFound(int tz)
+        {
+            for (int i=0; i < foundCount; i++)
+                if (found[i] == tz) return true;
+            return false;
+        }
+
+        private void offer(int tz, double metres)
+        {
+            if (found != null) {
+                if (tz != 0 && metres <= bestMetres && ! isFound(tz)) {
+                    if (foundCount == found.length)
+                        found = Arrays.copyOf(found, 2 * foundCount);
+                    found[foundCount++] = tz;
+                }
+            }
+            else if (tz != 0 && (metres < bestMetres || (bestTz == 0 && metres == bestMetres))) {
+                bestMetres = metres;
+                bestTz = tz;
+            }
+        }
+
+        private double rectMetres(double latFrom, double latTo, double lngFrom, double lngTo)
+        {
+            double dy = Math.max(0, Math.max(latFrom - lat, lat - latTo)) * METRES_PER_DEGREE;
+            double dx = Math.max(0, Math.max(lngFrom - lng, lng - lngTo)) * METRES_PER_DEGREE * cosLat;
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+
+        private boolean polygonContains(int poly)
+        {
+            return lng >= -180 && lng <= 180 && TimezoneMapper.polygonContains(poly, (float) lat, (float) lng);
+        }
+
+        /** The distance to the nearest edge of the polygon, whether the point is inside it or not. */
+        private double edgeMetres(int poly)
+        {
+            float[] pts = TimezoneMapper.polygonPoints(poly);
+            double best = Double.POSITIVE_INFINITY;
+            int n = pts.length;
+            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+                // The edge from (x1,y1) to (x2,y2), in metres relative to the point:
+                double y1 = (pts[j] - lat) * METRES_PER_DEGREE, x1 = (pts[j+1] - lng) * METRES_PER_DEGREE * cosLat;
+                double y2 = (pts[i] - lat) * METRES_PER_DEGREE, x2 = (pts[i+1] - lng) * METRES_PER_DEGREE * cosLat;
+                double dx = x2 - x1, dy = y2 - y1;
+                double lengthSquared = dx * dx + dy * dy;
+                double t = lengthSquared > 0 ? Math.max(0, Math.min(1, -(x1 * dx + y1 * dy) / lengthSquared)) : 0;
+                double x = x1 + t * dx, y = y1 + t * dy;
+                best = Math.min(best, x * x + y * y);
+            }
+            return Math.sqrt(best);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.skedgo.converter;
+
+
+/**
+ * The timezone of a point, along with a rectangle around it in which the timezone is guaranteed to be the same,
+ * so that a client can reuse the answer until it leaves the rectangle.  When the point is in a single-timezone
+ * leaf of the 2KD-tree the rectangle is the whole leaf.  When it's in a leaf with polygons, the rectangle is cut
+ * down from the leaf until none of the polygons' edges pass through it, which is conservative: the timezone may
+ * well be the same for some way beyond.  Right on a boundary the rectangle can be empty.
+ *
+ * The rectangle includes its southern and western edges but not its northern and eastern ones.
+ */
+public class TimezoneRegion {
+    // TzPolygon.contains() moves each edge 0.0001 degrees west, and this allows a little more for rounding:
+    private static final float EDGE_MARGIN = 0.0002f;
+    // How many times to halve the rectangle around a point that's close to an edge, before giving up:
+    private static final int MAX_HALVINGS = 24;
+
+    public final int tzIndex;
+    public final String tzId;
+    public final double latFrom, latTo, lngFrom, lngTo;
+
+    private TimezoneRegion(int _tzIndex, float[] bounds)
+    {
+        tzIndex = _tzIndex;
+        tzId = TimezoneMapper.timezoneIndexToString(tzIndex);
+        latFrom = bounds[0];
+        lngFrom = bounds[2];
+        // A double just below the 'to' edge could round up onto it when the lookup converts it to a float:
+        latTo = bounds[1] > bounds[0] ? Math.nextDown(bounds[1]) : bounds[0];
+        lngTo = bounds[3] > bounds[2] ? Math.nextDown(bounds[3]) : bounds[2];
+    }
+
+    public static TimezoneRegion lookupWithRegion(double lat, double lng)
+    {
+        float y = (float) lat;
+        float x = (float) lng;
+        float[] bounds = new float[4];
+        int leaf = TimezoneMapper.findLeaf(y, x, bounds);
+        int tz = TimezoneMapper.leafTz(leaf, y, x);
+        bounds[0] = Math.max(bounds[0], -90);
+        bounds[1] = Math.min(bounds[1], Math.nextUp(90f));
+        bounds[2] = Math.max(bounds[2], -180);
+        bounds[3] = Math.min(bounds[3], Math.nextUp(180f));
+        for (float[] pts : TimezoneMapper.leafPolygons(leaf)) {
+            int n = pts.length;
+            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+                if (! avoidEdge(bounds, y, x, pts[j], pts[j+1], pts[i], pts[i+1])) {
+                    bounds[0] = bounds[1] = y;
+                    bounds[2] = bounds[3] = x;
+                    return new TimezoneRegion(tz, bounds);
+                }
+            }
+        }
+        return new TimezoneRegion(tz, bounds);
+    }
+
+    public boolean contains(double lat, double lng)
+    {
+        return lat >= latFrom && lat < latTo && lng >= lngFrom && lng < lngTo;
+    }
+
+    public boolean isEmpty()
+    {
+        return ! (latFrom < latTo && lngFrom < lngTo);
+    }
+
+    @Override
+    public String toString()
+    {
+        return tzId + " in [" + latFrom + "," + latTo + ") x [" + lngFrom + "," + lngTo + ")";
+    }
+
+    /**
+     * Cuts the rectangle down, keeping (y,x) inside it, until the edge from (y1,x1) to (y2,x2) no longer comes within
+     * EDGE_MARGIN of it.  Cuts along whichever side keeps the most area.  Returns false if (y,x) is too close to the edge.
+     */
+    private static boolean avoidEdge(float[] r, float y, float x, float y1, float x1, float y2, float x2)
+    {
+        for (int halvings = 0; halvings <= MAX_HALVINGS; halvings++) {
+            // The part of the edge that's near the rectangle, by Liang-Barsky clipping:
+            double t0 = 0, t1 = 1;
+            double dy = y2 - y1, dx = x2 - x1;
+            double[] p = { -dy, dy, -dx, dx };
+            double[] q = { y1 - (r[0] - EDGE_MARGIN), (r[1] + EDGE_MARGIN) - y1, x1 - (r[2] - EDGE_MARGIN), (r[3] + EDGE_MARGIN) - x1 };
+            for (int k=0; k < 4 && t0 <= t1; k++) {
+                if (p[k] == 0) {
+                    if (q[k] < 0)
+                        return true;
+                }
+                else if (p[k] < 0)
+                    t0 = Math.max(t0, q[k] / p[k]);
+                else
+                    t1 = Math.min(t1, q[k] / p[k]);
+            }
+            if (t0 > t1)
+                return true;
+
+            float latLo = (float) (y1 + Math.min(t0 * dy, t1 * dy)) - EDGE_MARGIN;
+            float latHi = (float) (y1 + Math.max(t0 * dy, t1 * dy)) + EDGE_MARGIN;
+            float lngLo = (float) (x1 + Math.min(t0 * dx, t1 * dx)) - EDGE_MARGIN;
+            float lngHi = (float) (x1 + Math.max(t0 * dx, t1 * dx)) + EDGE_MARGIN;
+            double height = r[1] - r[0], width = r[3] - r[2];
+
+            // The ways of cutting that part off, as the new value for one side of the rectangle, and the area left:
+            float[] cuts = { latHi, latLo, lngHi, lngLo };
+            double[] areas = {
+                    latHi <= y ? (r[1] - latHi) * width : -1,
+                    latLo > y ? (latLo - r[0]) * width : -1,
+                    lngHi <= x ? (r[3] - lngHi) * height : -1,
+                    lngLo > x ? (lngLo - r[2]) * height : -1 };
+            int side = 0;
+            for (int k=1; k < 4; k++)
+                if (areas[k] > areas[side])
+                    side = k;
+            if (areas[side] >= 0) {
+                r[side] = cuts[side];
+                return true;
+            }
+
+            // (y,x) is within the edge's box, so close in on it and try again:
+            r[0] = y - (y - r[0]) / 2;
+            r[1] = y + (r[1] - y) / 2;
+            r[2] = x - (x - r[2]) / 2;
+            r[3] = x + (r[3] - x) / 2;
+            if (! (r[1] > y && r[3] > x))
+                return false;
+        }
+        return false;
+    }
+}
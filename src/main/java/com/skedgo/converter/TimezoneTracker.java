@@ -0,0 +1,39 @@
+package com.skedgo.converter;
+
+
+/**
+ * Looks up the timezones of a stream of points from one source, like the GPS trace of a vehicle, where each
+ * point is usually close to the one before.  The tracker remembers the rectangle of the 2KD-tree leaf that the
+ * last point fell in.  While the points stay inside it, a single-timezone leaf is answered straight away and a
+ * polygon leaf only has its own polygons tested; the tree is only walked again once a point leaves.
+ *
+ * Gives the same answers as TimezoneMapper.  A tracker holds the state of one stream, so it isn't thread-safe:
+ * use one per stream.
+ */
+public class TimezoneTracker {
+    private final float[] bounds = new float[4];    // latFrom, latTo, lngFrom, lngTo of the current leaf
+    private int leaf = -1;
+    private long treeWalks;
+
+    public String latLngToTimezoneString(double lat, double lng)
+    {
+        return TimezoneMapper.timezoneIndexToString(latLngToTimezoneIndex(lat, lng));
+    }
+
+    public int latLngToTimezoneIndex(double lat, double lng)
+    {
+        float y = (float) lat;
+        float x = (float) lng;
+        if (leaf < 0 || ! (y >= bounds[0] && y < bounds[1] && x >= bounds[2] && x < bounds[3])) {
+            leaf = TimezoneMapper.findLeaf(y, x, bounds);
+            treeWalks++;
+        }
+        return TimezoneMapper.leafTz(leaf, y, x);
+    }
+
+    /** How many of the lookups so far have had to walk the tree. */
+    public long treeWalks()
+    {
+        return treeWalks;
+    }
+}
@@ -246,24 +246,13 @@ public class Polygon implements BoundingBoxOrPolygon
 
     public boolean hasSelfIntersection()
     {
-        // This is a very inefficient implementation.
-        LatLong last = points.get(points.size()-1);
-        LatLong prev = last;
-        for (LatLong pt : points) {
-            LatLong prev2 = last;
-            for (LatLong pt2 : points) {
-                if (prev2 == prev || prev2 == pt || pt2 == prev || pt2 == pt)
-                    ;
-                else {
-                    LatLong X = segmentIntersectPointWorker(prev,pt, prev2,pt2);
-                    if (X != null)
-                        return true;
-                }
-                prev2 = pt;
-            }
-            prev = pt;
-        }
-        return false;
+        SegmentSweep sweep = new SegmentSweep(points, null);
+        return sweep.find(false, roundingMargin, (older, newer) -> {
+            LatLong A = sweep.a(older), B = sweep.b(older), C = sweep.a(newer), D = sweep.b(newer);
+            if (A == C || A == D || B == C || B == D)
+                return false;
+            return segmentIntersectPointWorker(A,B, C,D) != null;
+        }) != null;
     }
 
     public static class Intersection extends LatLong {
@@ -404,20 +393,13 @@ public class Polygon implements BoundingBoxOrPolygon
         if (contains(other.points.get(0)))
             return true;
 
-        //
-        int nVert = points.size();
-        LatLong last = points.get(nVert-1);
-        double xj = last.lng;
-        double yj = last.lat;
-        for (int i = 0; i < nVert; i++) {
-            double yi = points.get(i).lat;
-            double xi = points.get(i).lng;
-            if (other.segmentIntersects(xj,yj,xi,yi))
-                return true;
-            xj = xi;
-            yj = yi;
-        }
-        return false;
+        SegmentSweep sweep = new SegmentSweep(points, other.points);
+        return sweep.find(false, roundingMargin, (older, newer) -> {
+            if (sweep.isInRingA(older) == sweep.isInRingA(newer))
+                return false;
+            LatLong A = sweep.a(older), B = sweep.b(older), C = sweep.a(newer), D = sweep.b(newer);
+            return segmentIntersects(A.lng,A.lat, B.lng,B.lat, C.lng,C.lat, D.lng,D.lat);
+        }) != null;
     }
 
     /** If the points are specified in a random sequence, and we want to turn that into a suitable
@@ -517,13 +499,7 @@ public class Polygon implements BoundingBoxOrPolygon
         if (whollyContainedInside(otherBox)) {
             return singleton(this);
         }
-        Polygon polygon = newPolygon();
-        polygon.addPoint(otherBox.lat1,otherBox.lng1);
-        polygon.addPoint(otherBox.lat2,otherBox.lng1);
-        polygon.addPoint(otherBox.lat2,otherBox.lng2);
-        polygon.addPoint(otherBox.lat1,otherBox.lng2);
-        List<BoundingBoxOrPolygon> list = intersection(polygon);
-        return list;
+        return clip(otherBox);
     }
 
     @Override
@@ -544,6 +520,183 @@ public class Polygon implements BoundingBoxOrPolygon
         return singleton;
     }
 
+    /**
+     * The parts of this polygon inside 'box', clockwise, like intersection() but much quicker, since the box's sides
+     * are along the axes: the polygon is clipped to each side it goes beyond in turn, as Sutherland-Hodgman does,
+     * except that where the polygon goes out and back in again, the result is split into separate polygons instead
+     * of being joined along the side.
+     * @throws IllegalArgumentException if the polygon crosses a side in an order that only a self-intersecting
+     *                                  polygon could.
+     */
+    public List<BoundingBoxOrPolygon> clip(BoundingBox box)
+    {
+        List<List<LatLong>> rings = new ArrayList<>();
+        rings.add(points);
+        if (this.box.lat1 < box.lat1)
+            rings = clip(rings, true, box.lat1, false);
+        if (this.box.lat2 > box.lat2)
+            rings = clip(rings, true, box.lat2, true);
+        if (this.box.lng1 < box.lng1)
+            rings = clip(rings, false, box.lng1, false);
+        if (this.box.lng2 > box.lng2)
+            rings = clip(rings, false, box.lng2, true);
+        ArrayList<BoundingBoxOrPolygon> list = new ArrayList<>();
+        for (List<LatLong> ring : rings) {
+            Polygon part = newPolygon();
+            for (LatLong pt : ring)
+                part.addPoint(new LatLong(pt));
+            // Slivers, that only touch the side, have no area and so aren't clockwise:
+            if (part.points.size() > 2 && part.isClockwise())
+                list.add(part);
+        }
+        return list;
+    }
+
+    private static List<List<LatLong>> clip(List<List<LatLong>> rings, boolean onLat, double pivot, boolean keepBelow)
+    {
+        List<List<LatLong>> result = new ArrayList<>();
+        for (List<LatLong> ring : rings)
+            clip(ring, onLat, pivot, keepBelow, result);
+        return result;
+    }
+
+    /**
+     * Clips a clockwise ring to one side of the line where lat (or lng) is 'pivot', keeping the points below it
+     * or above it, and those on it.  The ring is cut into chains, each from where it comes in across the line to
+     * where it next goes out.  Going clockwise, the result follows the line from where a chain goes out to where the
+     * next chain along comes in, so the chains are joined up that way, into as many rings as that gives.
+     *
+     * A point on the line counts as being on the side kept, so where the ring only touches the line from the other
+     * side, at one point, that point is a chain of its own, which comes in and goes out at the same place.  It adds
+     * nothing, and can be where the result doesn't follow the line, so it's left out.
+     */
+    private static void clip(List<LatLong> ring, boolean onLat, double pivot, boolean keepBelow, List<List<LatLong>> result)
+    {
+        int n = ring.size();
+        boolean[] inside = new boolean[n];
+        int numInside = 0;
+        for (int i=0; i < n; i++) {
+            double value = onLat ? ring.get(i).lat : ring.get(i).lng;
+            inside[i] = keepBelow ? value <= pivot : value >= pivot;
+            if (inside[i])
+                numInside++;
+        }
+        if (numInside == n) {
+            result.add(ring);
+            return;
+        }
+
+        // The chains, from where the ring comes in to where it goes out:
+        List<List<LatLong>> chains = new ArrayList<>();
+        for (int i=0; i < n; i++) {
+            int prev = i == 0 ? n - 1 : i - 1;
+            if (! inside[i] || inside[prev])
+                continue;
+            List<LatLong> chain = new ArrayList<>();
+            chain.add(crossing(ring.get(prev), ring.get(i), onLat, pivot));
+            int j = i;
+            for (; inside[j]; j = j + 1 >= n ? 0 : j + 1)
+                addDistinct(chain, ring.get(j));
+            addDistinct(chain, crossing(ring.get(j == 0 ? n - 1 : j - 1), ring.get(j), onLat, pivot));
+            if (chain.size() > 1)
+                chains.add(chain);
+        }
+
+        // Going clockwise, the side kept is on the right, so the result follows the line this way along it:
+        double direction = onLat == keepBelow ? 1 : -1;
+        int numChains = chains.size();
+        Integer[] ends = new Integer[2*numChains];     // 2c is where chain c comes in, and 2c+1 where it goes out.
+        double[] along = new double[2*numChains];
+        for (int c=0; c < numChains; c++) {
+            List<LatLong> chain = chains.get(c);
+            LatLong in = chain.get(0), out = chain.get(chain.size()-1);
+            along[2*c] = direction * (onLat ? in.lng : in.lat);
+            along[2*c+1] = direction * (onLat ? out.lng : out.lat);
+            ends[2*c] = 2*c;
+            ends[2*c+1] = 2*c+1;
+        }
+        Arrays.sort(ends, (end1, end2) -> {
+            int compare = Double.compare(along[end1], along[end2]);
+            return compare != 0 ? compare : Integer.compare(end1, end2);
+        });
+        // Along the line, going out and coming in alternate, starting with going out.  Where several chains end at
+        // the same point, they're taken in whichever order keeps that so:
+        int[] next = new int[numChains];
+        for (int k=0; k < ends.length; k++) {
+            int wanted = k % 2 == 0 ? 1 : 0;
+            if ((ends[k] & 1) != wanted) {
+                int m = k + 1;
+                while (m < ends.length && along[ends[m]] == along[ends[k]] && (ends[m] & 1) != wanted)
+                    m++;
+                if (m == ends.length || along[ends[m]] != along[ends[k]])
+                    throw new IllegalArgumentException("The polygon crosses " + (onLat ? "lat " : "lng ") + pivot
+                            + " out of order, so it intersects itself");
+                int swap = ends[k];
+                ends[k] = ends[m];
+                ends[m] = swap;
+            }
+            if (wanted == 0)
+                next[ends[k-1] / 2] = ends[k] / 2;
+        }
+
+        boolean[] used = new boolean[numChains];
+        for (int c=0; c < numChains; c++) {
+            if (used[c])
+                continue;
+            List<LatLong> part = new ArrayList<>();
+            for (int d = c; ! used[d]; d = next[d]) {
+                used[d] = true;
+                for (LatLong pt : chains.get(d))
+                    addDistinct(part, pt);
+            }
+            straightenAlongLine(part, onLat, pivot);
+            result.add(part);
+        }
+    }
+
+    /**
+     * Takes out the points in the middle of any 3 in a row on the line, and repeated points.  Where an edge of the
+     * ring was along the line, the result can go along it and back, which has no area, but would confuse
+     * isClockwise().
+     */
+    private static void straightenAlongLine(List<LatLong> ring, boolean onLat, double pivot)
+    {
+        boolean changed = true;
+        while (changed && ring.size() > 2) {
+            changed = false;
+            for (int i=0; i < ring.size() && ring.size() > 2; ) {
+                LatLong A = ring.get(i == 0 ? ring.size() - 1 : i - 1), B = ring.get(i), C = ring.get(i + 1 >= ring.size() ? 0 : i + 1);
+                boolean onLine = (onLat ? A.lat : A.lng) == pivot && (onLat ? B.lat : B.lng) == pivot && (onLat ? C.lat : C.lng) == pivot;
+                if (onLine || B.equals(A)) {
+                    ring.remove(i);
+                    changed = true;
+                }
+                else i++;
+            }
+        }
+    }
+
+    /** Where AB crosses the line, which is A or B if either is on it. */
+    private static LatLong crossing(LatLong A, LatLong B, boolean onLat, double pivot)
+    {
+        double a = onLat ? A.lat : A.lng;
+        double b = onLat ? B.lat : B.lng;
+        if (a == pivot)
+            return A;
+        if (b == pivot)
+            return B;
+        double t = (pivot - a) / (b - a);
+        if (onLat)
+            return new LatLong(pivot, A.lng + t * (B.lng - A.lng));
+        else return new LatLong(A.lat + t * (B.lat - A.lat), pivot);
+    }
+
+    private static void addDistinct(List<LatLong> ring, LatLong pt)
+    {
+        if (ring.isEmpty() || ! ring.get(ring.size()-1).equals(pt))
+            ring.add(pt);
+    }
+
     public List<BoundingBoxOrPolygon> intersection(Polygon other) {
         try {
             return intersectionWorker(other);
@@ -1278,54 +1431,28 @@ public class Polygon implements BoundingBoxOrPolygon
         return polygon;
     }
 
-    private class Segment2 extends BoundingBox {
-        int i;
-
-        Segment2(int _i)
-        {
-            super(false);
-            i = _i;
-            extendToFit(A());
-            extendToFit(B());
-        }
-
-        LatLong A() { return points.get(i); }
-        LatLong B() { return points.get(i+1>=points.size()?0:i+1); }
-    }
-
     private Intersection2 findInternalIntersections()
     {
-        List<Segment2> segs = new ArrayList<>();
-        for (int i=0; i < points.size(); i++) {
-            segs.add(new Segment2(i));
-        }
-        Segment2[] entering = segs.toArray(new Segment2[0]);
-        Segment2[] leaving = segs.toArray(new Segment2[0]);
-        Arrays.sort(entering, new Comparator<Segment2>() {
-            @Override
-            public int compare(Segment2 seg1, Segment2 seg2) {
-                return Double.compare(seg1.lng1, seg2.lng1);
-            }
-        });
-        Arrays.sort(leaving, new Comparator<Segment2>() {
-            @Override
-            public int compare(Segment2 seg1, Segment2 seg2) {
-                return Double.compare(seg1.lng2, seg2.lng2);
-            }
+        SegmentSweep sweep = new SegmentSweep(points, null);
+        Intersection2 X2 = new Intersection2();
+        int[] pair = sweep.find(true, 0, (older, newer) -> {
+            LatLong A = sweep.a(older);
+            LatLong B = sweep.b(older);
+            LatLong C = sweep.a(newer);
+            LatLong D = sweep.b(newer);
+            if (A == C || A == D || B == C || B == D)
+                return false;
+            Intersection X = segmentIntersectPointWorker(A,B,C,D);
+            if (X == null)
+                return false;
+            X2.X = X;
+            return true;
         });
-        int e=0, l = 0;
-        List<Segment2> loom = new ArrayList<>();
-        do {
-            if (e < entering.length && entering[e].lng1 <= leaving[l].lng2) {
-                Segment2 newSeg = entering[e++];
-                Intersection2 X = examineForSelfIntersection(loom, newSeg);
-                if (X != null)
-                    return X;
-                loom.add(newSeg);
-            }
-            else loom.remove(leaving[l++]);
-        } while (l < leaving.length);
-        return null;
+        if (pair == null)
+            return null;
+        X2.i1 = pair[0];
+        X2.i2 = pair[1];
+        return X2;
     }
 
     private static class Intersection2 {
@@ -1333,29 +1460,6 @@ public class Polygon implements BoundingBoxOrPolygon
         Intersection X;
     }
 
-    private Intersection2 examineForSelfIntersection(List<Segment2> loom, Segment2 newSeg)
-    {
-        for (Segment2 old : loom) {
-            if (old.intersects(newSeg)) {
-                LatLong A = old.A();
-                LatLong B = old.B();
-                LatLong C = newSeg.A();
-                LatLong D = newSeg.B();
-                if (A == C || A == D || B == C || B == D)
-                    continue;
-                Intersection X = segmentIntersectPointWorker(A,B,C,D);
-                if (X != null) {
-                    Intersection2 X2 = new Intersection2();
-                    X2.i1 = old.i;
-                    X2.i2 = newSeg.i;
-                    X2.X = X;
-                    return X2;
-                }
-            }
-        }
-        return null;
-    }
-
     public static class PolygonException extends Exception {
         Polygon bad;
 
@@ -0,0 +1,205 @@
+package com.skedgo.generator;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Finds crossing edges, of one ring of points or between two, by sweeping a line from west to east across them.
+ * An edge becomes active when the line reaches its western end, and stops being active when the line has passed
+ * its eastern end, so each new edge is only ever compared with the active edges that also overlap it in latitude.
+ *
+ * The active edges are kept in latitude bands (as TzPolygon's edges are), so that finding the ones that overlap
+ * a new edge doesn't look at all of them, and an edge stops being active in O(1), by being marked so; the bands
+ * drop it the next time they're looked through.  There are only as many bands as keep the edges in a few each, on
+ * average, so that the tall ones don't fill them all.
+ *
+ * The pair that find() gives is the one that Polygon.findInternalIntersections() used to find, comparing each new
+ * edge, in order of their western ends, with all the active edges in the order they became active: the first new
+ * edge that crosses any, with the earliest active edge that it crosses.
+ */
+class SegmentSweep {
+    /**
+     * A test of an active edge 'older' against the new edge 'newer'.  After it says one pair crosses, it can still be
+     * asked about the same new edge with edges that became active before that one, so anything it keeps about the
+     * pair it found should be replaced by the next pair it says crosses.
+     */
+    interface Pair {
+        boolean crosses(int older, int newer);
+    }
+
+    private static final int MAX_BANDS = 1024;
+    private static final int BANDS_PER_EDGE = 4;
+
+    private final LatLong[] points;       // Both rings' points, one after the other.
+    private final int sizeA, n;
+    // Each edge's bounding box:
+    private final double[] lat1, lat2, lng1, lng2;
+
+    SegmentSweep(List<LatLong> _ringA, List<LatLong> _ringB)
+    {
+        sizeA = _ringA.size();
+        n = sizeA + (_ringB == null ? 0 : _ringB.size());
+        points = _ringA.toArray(new LatLong[n]);
+        for (int i = sizeA; i < n; i++)
+            points[i] = _ringB.get(i - sizeA);
+        lat1 = new double[n];
+        lat2 = new double[n];
+        lng1 = new double[n];
+        lng2 = new double[n];
+        for (int i=0; i < n; i++) {
+            LatLong A = a(i), B = b(i);
+            lat1[i] = Math.min(A.lat, B.lat);
+            lat2[i] = Math.max(A.lat, B.lat);
+            lng1[i] = Math.min(A.lng, B.lng);
+            lng2[i] = Math.max(A.lng, B.lng);
+        }
+    }
+
+    /** Edge i goes from a(i) to b(i).  The first ring's edges are numbered from 0, and the second ring's after them. */
+    LatLong a(int i)
+    {
+        return points[i];
+    }
+
+    LatLong b(int i)
+    {
+        if (i < sizeA)
+            return points[i+1 >= sizeA ? 0 : i+1];
+        return points[i+1 >= n ? sizeA : i+1];
+    }
+
+    boolean isInRingA(int i)
+    {
+        return i < sizeA;
+    }
+
+    /**
+     * Sweeps across the edges, asking 'pair' about each pair of edges whose bounding boxes overlap, until it says
+     * one crosses.  Gives {older, newer}, or null if none do.  If 'strict', boxes that only touch don't overlap,
+     * as in BoundingBox.intersects(); otherwise they do, with 'margin' to spare.
+     */
+    int[] find(boolean strict, double margin, Pair pair)
+    {
+        if (n == 0)
+            return null;
+        int[] entering = sortedBy(lng1);
+        int[] leaving = sortedBy(lng2);
+
+        // The latitude bands:
+        double minLat = lat1[0], maxLat = lat2[0];
+        for (int i=1; i < n; i++) {
+            minLat = Math.min(minLat, lat1[i]);
+            maxLat = Math.max(maxLat, lat2[i]);
+        }
+        double heights = 0;
+        for (int i=0; i < n; i++)
+            heights += lat2[i] - lat1[i];
+        double limit = heights > 0 ? BANDS_PER_EDGE * n * (maxLat - minLat) / heights : n;
+        int numBands = (int) Math.max(1, Math.min(Math.min(n / 4, MAX_BANDS), limit));
+        double bandHeight = (maxLat - minLat) / numBands;
+        if (! (bandHeight > 0))
+            numBands = 1;
+        int[][] bands = new int[numBands][];
+        int[] bandSizes = new int[numBands];
+
+        int[] activeSince = new int[n];     // When each edge became active, from 1, or 0 if it isn't.
+        int[] seen = new int[n];            // The last new edge it was looked at for, from 1.
+        int e = 0, l = 0;
+        do {
+            if (e < n && lng1[entering[e]] <= lng2[leaving[l]]) {
+                int newer = entering[e++];
+                int from = band(lat1[newer] - margin, minLat, bandHeight, numBands);
+                int to = band(lat2[newer] + margin, minLat, bandHeight, numBands);
+
+                // The active edges whose boxes overlap this one's, keeping the one that became active first of those
+                // that cross it, so that those that became active later don't need asking about:
+                int best = -1;
+                for (int b = from; b <= to; b++) {
+                    int[] list = bands[b];
+                    int size = bandSizes[b];
+                    for (int k=0; k < size; ) {
+                        int older = list[k];
+                        if (activeSince[older] == 0) {
+                            list[k] = list[--size];     // It's no longer active.
+                            continue;
+                        }
+                        k++;
+                        if (seen[older] == e)
+                            continue;
+                        seen[older] = e;
+                        if (overlaps(older, newer, strict, margin) && (best < 0 || activeSince[older] < activeSince[best])
+                                && pair.crosses(older, newer))
+                            best = older;
+                    }
+                    bandSizes[b] = size;
+                }
+                if (best >= 0)
+                    return new int[] { best, newer };
+
+                // It becomes active:
+                activeSince[newer] = e;
+                int last = band(lat2[newer], minLat, bandHeight, numBands);
+                for (int b = band(lat1[newer], minLat, bandHeight, numBands); b <= last; b++) {
+                    if (bands[b] == null)
+                        bands[b] = new int[4];
+                    else if (bandSizes[b] == bands[b].length)
+                        bands[b] = Arrays.copyOf(bands[b], 2 * bandSizes[b]);
+                    bands[b][bandSizes[b]++] = newer;
+                }
+            }
+            else activeSince[leaving[l++]] = 0;
+        } while (l < n);
+        return null;
+    }
+
+    private boolean overlaps(int i, int j, boolean strict, double margin)
+    {
+        if (strict)
+            return lat1[i] < lat2[j] && lat2[i] > lat1[j] && lng1[i] < lng2[j] && lng2[i] > lng1[j];
+        return lat1[i] <= lat2[j] + margin && lat2[i] >= lat1[j] - margin
+                && lng1[i] <= lng2[j] + margin && lng2[i] >= lng1[j] - margin;
+    }
+
+    private static int band(double lat, double minLat, double bandHeight, int numBands)
+    {
+        if (numBands == 1)
+            return 0;
+        return Math.max(0, Math.min((int) ((lat - minLat) / bandHeight), numBands - 1));
+    }
+
+    /** The edges in order of 'key', and of their number where that's the same, as a stable sort would have them. */
+    private int[] sortedBy(double[] key)
+    {
+        int[] result = new int[n];
+        for (int i=0; i < n; i++)
+            result[i] = i;
+        mergeSort(result, new int[n], 0, n, key);
+        return result;
+    }
+
+    private static void mergeSort(int[] a, int[] spare, int from, int to, double[] key)
+    {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int x = a[i];
+                int j = i;
+                for (; j > from && Double.compare(key[a[j-1]], key[x]) > 0; j--)
+                    a[j] = a[j-1];
+                a[j] = x;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, spare, from, mid, key);
+        mergeSort(a, spare, mid, to, key);
+        if (Double.compare(key[a[mid-1]], key[a[mid]]) <= 0)
+            return;
+        System.arraycopy(a, from, spare, from, to - from);
+        for (int i = from, j = mid, k = from; k < to; k++) {
+            if (j >= to || (i < mid && Double.compare(key[spare[i]], key[spare[j]]) <= 0))
+                a[k] = spare[i++];
+            else a[k] = spare[j++];
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.skedgo.generator;
 
-import com.skedgo.generator.parsing.JSONArray;
+import com.skedgo.converter.TimezoneIndex;
+import com.skedgo.generator.parsing.GeoJsonReader;
 import com.skedgo.generator.parsing.JSONException;
-import com.skedgo.generator.parsing.JSONObject;
-import com.skedgo.generator.parsing.JSONTokener;
-
-import java.io.FileNotFoundException;
+import com.skedgo.generator.parsing.PolygonJsonReader;
+import com.skedgo.generator.parsing.PolygonReader;
+import com.skedgo.generator.parsing.ShapefileReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 /**
@@ -41,9 +56,10 @@ public class TimeZoneMapperConverter {
 
     private Map<String,Integer> tzstringToIntMap = new HashMap<>();
     private int tzNum=1;
-    private List<TimezonePolygon> inputPolygons;
+    List<TimezonePolygon> inputPolygons;
     private List<String> int2tzstring = new ArrayList<>();
-    private double shownProgress;
+    private double doneProgress;
+    private int shownProgress;
 
     private final LatLong paris = new LatLong(48.856696,2.352077);
     private final LatLong chattanooga = new LatLong(35.03217, -85.19392);
@@ -57,14 +73,20 @@ public class TimeZoneMapperConverter {
     private final LatLong baykonyr = new LatLong(45.61667, 63.31667);
 
     static int serialL;
-    static long seed = System.currentTimeMillis();
-    static Random random = new Random(seed);
+
+    // The KD-tree is built on a ForkJoinPool with this many threads.  A subtree with fewer polygons than
+    // SEQUENTIAL_CUTOFF is built by whichever thread gets to it, as forking would cost more than it saves.
+    static final int PARALLELISM = Integer.getInteger("com.skedgo.generator.parallelism", Runtime.getRuntime().availableProcessors());
+    static final int SEQUENTIAL_CUTOFF = Integer.getInteger("com.skedgo.generator.sequentialCutoff", 64);
+
+    // The threads for this converter, PARALLELISM unless a test says otherwise:
+    int parallelism = PARALLELISM;
 
 
     public static void main(String[] args) {
         if (args.length != 2) {
             System.out.println("Usage: " + TimeZoneMapperConverter.class.getSimpleName()
-                + " <json input file> <output file base (no extension)>");
+                + " <json or GeoJSON input file, a shapefile (.shp, with its .shx and .dbf), or a previously generated TimezoneMapper.java> <output file base (no extension)>");
             return;
         }
 
@@ -78,14 +100,22 @@ public class TimeZoneMapperConverter {
 
     public void go(String inputFilename, String outputFilename) throws IOException, JSONException
     {
-        readPolygons(inputFilename);
-        test1();
-        makeKdTree();
-        TzNode succinctRoot = convertToSuccinct(kdRoot);
+        TzNode succinctRoot;
+        if (inputFilename.endsWith(".java")) {
+            succinctRoot = readJavaSource(inputFilename);
+        }
+        else {
+            readPolygons(inputFilename, parallelism);
+            test1();
+            makeKdTree();
+            succinctRoot = convertToSuccinct(kdRoot);
+        }
         outputJavaSource(succinctRoot, outputFilename + ".java");
         outputSwiftSource(succinctRoot, outputFilename + ".swift");
+        outputBinaryIndex(succinctRoot, outputFilename + ".bin");
         test3(succinctRoot);
-        System.out.println("Finished.  Have a look at: " + outputFilename + ".java / .swift");
+        test4(outputFilename + ".bin");
+        System.out.println("Finished.  Have a look at: " + outputFilename + ".java / .swift / .bin");
     }
 
     private void test1()
@@ -122,6 +152,15 @@ public class TimeZoneMapperConverter {
         System.out.println("Succinct has northern Italy in: " + succinctRoot.getTimezone(northernItaly));
     }
 
+    private void test4(String binaryIndexFilename) throws IOException
+    {
+        TimezoneIndex index = TimezoneIndex.open(Paths.get(binaryIndexFilename));
+        System.out.println("Binary index has Chicago in: " + index.latLngToTimezoneString(chicago.lat, chicago.lng));
+        System.out.println("Binary index has Chattanooga in: " + index.latLngToTimezoneString(chattanooga.lat, chattanooga.lng));
+        System.out.println("Binary index has GoldCoast in: " + index.latLngToTimezoneString(goldcoast.lat, goldcoast.lng));
+        System.out.println("Binary index has French Pyrenees in: " + index.latLngToTimezoneString(frenchPyrenees.lat, frenchPyrenees.lng));
+    }
+
     private void debug() throws Polygon.PolygonException {
         if (! kdRoot.findTz(chicago).equals("America/Chicago")) {
             kdRoot.findTz(chicago);
@@ -160,13 +199,15 @@ public class TimeZoneMapperConverter {
         public TimezonePolygon(String _tzstring)
         {
             tzstring = _tzstring;
-            Integer i = tzstringToIntMap.get(tzstring);
-            if (i == null) {
-                i = tzNum++;
-                int2tzstring.add(tzstring);
-                tzstringToIntMap.put(tzstring, i);
+            synchronized (tzstringToIntMap) {
+                Integer i = tzstringToIntMap.get(tzstring);
+                if (i == null) {
+                    i = tzNum++;
+                    int2tzstring.add(tzstring);
+                    tzstringToIntMap.put(tzstring, i);
+                }
+                tz = i;
             }
-            tz = i;
         }
 
         public TimezonePolygon()
@@ -244,39 +285,105 @@ public class TimeZoneMapperConverter {
             writer.append(' ');
     }
 
-    private void readPolygons(String inputFilename) throws FileNotFoundException, JSONException
+    /** Reads and tidies the polygons into inputPolygons, in the order they're in the file, tidying on 'parallelism' threads. */
+    void readPolygons(String inputFilename, int parallelism) throws IOException, JSONException
     {
         int2tzstring.add("unknown");        // This will be timezone 0.
         System.out.println("Reading polygons");
-        JSONArray json = new JSONArray(new JSONTokener(new FileReader(inputFilename)));
+        long start = System.nanoTime();
+        // Each polygon is tidied up on its own, so each one is handed to the pool as soon as it's read, and the
+        // results put back in input order.  The polygons are made in input order, so that the timezones are
+        // numbered the same every time.
+        PhaseTimes times = new PhaseTimes();
+        List<Future<List<TimezonePolygon>>> results = new ArrayList<>();
         inputPolygons = new ArrayList<>();
-        for (Object obj : json) {
-            JSONObject jPoly = (JSONObject)obj;
-            String tz = jPoly.getString("tz");
-            if (tz.equals("uninhabited"))
-                continue;
-            JSONArray points = jPoly.optJSONArray("polygon");
-            TimezonePolygon polygon = new TimezonePolygon(tz.intern());
-            for (Object obj2 : points) {
-                JSONArray jPt = (JSONArray)obj2;
-                double lat = jPt.getDouble(1);
-                double lng = jPt.getDouble(0);
-                polygon.addPoint(lat,lng);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long parsed;
+        try (PolygonReader input = openPolygons(inputFilename)) {
+            while (input.next()) {
+                // Holes are anticlockwise, which tidy() would drop anyway:
+                if (input.tz.equals("uninhabited") || input.hole)
+                    continue;
+                TimezonePolygon polygon = new TimezonePolygon(input.tz.intern());
+                for (int i=0; i < input.size; i++)
+                    polygon.addPoint(input.lats[i], input.lngs[i]);
+                results.add(pool.submit(() -> tidy(polygon, times)));
             }
-            polygon.cleanUp();
-            if (polygon.isClockwise()) {
-                polygon.simplify(1500); //1.5km
-                if (polygon.size() > 2 && polygon.isClockwise()) {
-                    List<Polygon> polys = polygon.separateSelfIntersectingPolygons();
-                    for (Polygon poly : polys) {
-                        if (new LatLong(poly.box.lat1, poly.box.lng1).distanceInMetres(new LatLong(poly.box.lat2, poly.box.lng2)) < 2000)
-                            ;       // It's too small, probably an artifact of smoothing.
-                        else inputPolygons.add((TimezonePolygon)poly);
-                    }
+            parsed = System.nanoTime();
+            for (Future<List<TimezonePolygon>> result : results)
+                inputPolygons.addAll(result.get());
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        finally {
+            pool.shutdown();
+        }
+        long tidied = System.nanoTime();
+        System.out.println("Finished reading: " + inputPolygons.size() + " polygons from " + results.size()
+                + " in " + (tidied - start) / 1000000 + "ms.  Parsing took " + (parsed - start) / 1000000
+                + "ms, alongside tidying on " + parallelism + " threads, which took a further " + (tidied - parsed) / 1000000
+                + "ms after it, and, summed over the threads:");
+        times.show();
+    }
+
+    /** A reader for a shapefile, a GeoJSON FeatureCollection (which starts with a '{'), or toJson's json. */
+    private static PolygonReader openPolygons(String inputFilename) throws IOException
+    {
+        if (inputFilename.endsWith(".shp"))
+            return new ShapefileReader(inputFilename);
+        BufferedReader reader = new BufferedReader(new FileReader(inputFilename), 1 << 16);
+        reader.mark(1);
+        int c;
+        while ((c = reader.read()) >= 0 && Character.isWhitespace(c))
+            reader.mark(1);
+        reader.reset();
+        return c == '{' ? new GeoJsonReader(reader) : new PolygonJsonReader(reader);
+    }
+
+    /** The time spent in each step of tidy(), summed over all the threads. */
+    private static class PhaseTimes {
+        final LongAdder cleanUp = new LongAdder();
+        final LongAdder isClockwise = new LongAdder();
+        final LongAdder simplify = new LongAdder();
+        final LongAdder separate = new LongAdder();
+
+        void show()
+        {
+            System.out.println("    cleanUp " + cleanUp.sum() / 1000000 + "ms, isClockwise " + isClockwise.sum() / 1000000
+                    + "ms, simplify " + simplify.sum() / 1000000 + "ms, separateSelfIntersectingPolygons " + separate.sum() / 1000000 + "ms");
+        }
+    }
+
+    /** Cleans up and simplifies one input polygon, giving the polygons it turns into, if any are worth keeping. */
+    private List<TimezonePolygon> tidy(TimezonePolygon polygon, PhaseTimes times)
+    {
+        List<TimezonePolygon> result = new ArrayList<>();
+        long t0 = System.nanoTime();
+        polygon.cleanUp();
+        long t1 = System.nanoTime();
+        boolean clockwise = polygon.isClockwise();
+        long t2 = System.nanoTime();
+        times.cleanUp.add(t1 - t0);
+        times.isClockwise.add(t2 - t1);
+        if (clockwise) {
+            polygon.simplify(1500); //1.5km
+            long t3 = System.nanoTime();
+            clockwise = polygon.size() > 2 && polygon.isClockwise();
+            long t4 = System.nanoTime();
+            times.simplify.add(t3 - t2);
+            times.isClockwise.add(t4 - t3);
+            if (clockwise) {
+                List<Polygon> polys = polygon.separateSelfIntersectingPolygons();
+                times.separate.add(System.nanoTime() - t4);
+                for (Polygon poly : polys) {
+                    if (new LatLong(poly.box.lat1, poly.box.lng1).distanceInMetres(new LatLong(poly.box.lat2, poly.box.lng2)) < 2000)
+                        ;       // It's too small, probably an artifact of smoothing.
+                    else result.add((TimezonePolygon)poly);
                 }
             }
         }
-        System.out.println("Finished reading.");
+        return result;
     }
 
 
@@ -304,28 +411,33 @@ public class TimeZoneMapperConverter {
 
         public void splitAsNecessary(int depth, double progress1, double progress2)
         {
-            do {
-                try {
-                    splitAsNecessaryWorker(depth, progress1, progress2);
-                    break;
-                } catch (Exception e) {
-                }
-            } while (true);
+            try {
+                if (! splitAsNecessaryWorker(depth, progress1, progress2))
+                    showProgress(progress2 - progress1);
+            } catch (Polygon.PolygonException e) {
+                throw new IllegalStateException("Couldn't split the KD-tree node at " + this, e);
+            }
+        }
+
+        ForkJoinTask<?> splitTask(int depth, double progress1, double progress2)
+        {
+            return ForkJoinTask.adapt(() -> splitAsNecessary(depth, progress1, progress2));
         }
 
-        public void splitAsNecessaryWorker(int depth, double progress1, double progress2) throws Polygon.PolygonException {
+        /** Returns true if it passed [progress1,progress2] on to its children, who will have shown the progress. */
+        public boolean splitAsNecessaryWorker(int depth, double progress1, double progress2) throws Polygon.PolygonException {
 
             // Is the job already done?
             tz = pureTimezone();
             if (tz != 0)
-                return;
+                return false;
             if (polys.size() <= 1)
-                return;
+                return false;
 
             // Special logic when we get down to 2 polys:
             if (polys.size() == 2) {
                 split2Polys();
-                return;
+                return false;
             }
 
             // The normal case:
@@ -339,7 +451,7 @@ public class TimeZoneMapperConverter {
             if (pivotOnLat) {
                 if (scoreLat >= maxScore) {
                     splitJustToReduceComplexityInPolygons();
-                    return;// We can't divide these tzPolys up any further by horizontal or vertical cut lines.
+                    return false;// We can't divide these tzPolys up any further by horizontal or vertical cut lines.
                 }
                 pivot = pivotLat;
                 left = new KdTree(lat1, pivot, lng1, lng2);
@@ -354,7 +466,7 @@ public class TimeZoneMapperConverter {
             else {
                 if (scoreLng >= maxScore) {
                     splitJustToReduceComplexityInPolygons();
-                    return;// We can't divide these tzPolys up any further by horizontal or vertical cut lines.
+                    return false;// We can't divide these tzPolys up any further by horizontal or vertical cut lines.
                 }
                 pivot = pivotLng;
                 left = new KdTree(lat1, lat2, lng1, pivot);
@@ -368,16 +480,14 @@ public class TimeZoneMapperConverter {
             }
             depth++;
             double midProgress = (progress1 + progress2) / 2;
-            left.splitAsNecessary(depth, progress1, midProgress);
-            right.splitAsNecessary(depth, midProgress, progress2);
-            polys = null;
-
-            // Display a progress indicator:
-            int progress = (int)progress2;
-            if (progress != shownProgress) {
-                System.out.println("[" + progress + "%]");
-                shownProgress = progress;
+            // The two halves are independent, so big ones are built in parallel:
+            if (polys.size() < SEQUENTIAL_CUTOFF || parallelism <= 1) {
+                left.splitAsNecessary(depth, progress1, midProgress);
+                right.splitAsNecessary(depth, midProgress, progress2);
             }
+            else ForkJoinTask.invokeAll(left.splitTask(depth, progress1, midProgress), right.splitTask(depth, midProgress, progress2));
+            polys = null;
+            return true;
         }
 
         private void split2Polys() throws Polygon.PolygonException {
@@ -486,74 +596,87 @@ public class TimeZoneMapperConverter {
             return tz1;
         }
 
+        /**
+         * Finds the best pivot on one axis, of the polygons' edges along it, and gives its score (see below).  Every
+         * candidate is scored, by sweeping along the sorted edges counting the polygons either side, rather than
+         * going through all the polygons for each one.
+         *
+         * A polygon is on the left of a pivot if its box starts before it, and on the right if its box ends after it.
+         * A side counts as 1 polygon if all its polygons are in the same timezone.  The score is the sum of the
+         * squares of the two sides' counts, and the best pivot the first with the lowest score.
+         */
         private double whatIfSplit(boolean splitOnLat)
         {
-            double[] interesting = new double[polys.size()*2];
-            int n = 0;
-            for (TimezonePolygon poly : polys) {
-                interesting[n++] = splitOnLat ? poly.box.lat1 : poly.box.lng1;
-                interesting[n++] = splitOnLat ? poly.box.lat2 : poly.box.lng2;
+            int size = polys.size();
+            double[] mins = new double[size];
+            double[] maxes = new double[size];
+            for (int i=0; i < size; i++) {
+                BoundingBox box = polys.get(i).box;
+                mins[i] = splitOnLat ? box.lat1 : box.lng1;
+                maxes[i] = splitOnLat ? box.lat2 : box.lng2;
             }
-            Arrays.sort(interesting);
+
+            // The left side is pure while the pivot is no further than where the first polygon of another timezone
+            // starts, and the right side while it's no nearer than where the last polygon of another timezone ends:
+            double leftPureUntil = purityLimit(mins, true);
+            double rightPureFrom = purityLimit(maxes, false);
+
+            Arrays.sort(mins);
+            Arrays.sort(maxes);
+            double[] interesting = new double[2*size];
+            for (int i=0, j=0, n=0; n < interesting.length; n++)
+                interesting[n] = j >= size || (i < size && mins[i] <= maxes[j]) ? mins[i++] : maxes[j++];
+
             double bestScore = Double.MAX_VALUE;
             double bestPivot = 0;
-            int n1 = 1;
-            int n2 = interesting.length-1;
-            if (n2 > 1000) {
-                int c = n2 / 2;
-                n1 = c - 500;
-                n2 = c + 500;
-            }
-            int step = 1;
-            if (n2 - n1 > 100)
-                step = 5;
-            for (n=n1; n < n2; n += step) {
-                double score = whatIfSplit(interesting[n], splitOnLat);
-                // For randomising the structure:   score *= 1.0 + 0.1 * random.nextDouble();
+            int nLeft = 0;          // The polygons that start before the pivot.
+            int nNotRight = 0;      // The polygons that end at or before it.
+            for (int n=1; n < interesting.length - 1; n++) {
+                double pivot = interesting[n];
+                while (nLeft < size && mins[nLeft] < pivot)
+                    nLeft++;
+                while (nNotRight < size && maxes[nNotRight] <= pivot)
+                    nNotRight++;
+                int nRight = size - nNotRight;
+                double left = nLeft > 0 && pivot <= leftPureUntil ? 1 : nLeft;
+                double right = nRight > 0 && pivot >= rightPureFrom ? 1 : nRight;
+                double score = left*left + right*right;
                 if (score < bestScore) {
                     bestScore = score;
-                    bestPivot = interesting[n];
+                    bestPivot = pivot;
                 }
             }
             pivot = bestPivot;
             return bestScore;
         }
 
-        private double whatIfSplit(double pivot, boolean splitOnLat)
+        /**
+         * For the polygons' starts ('fromStart') or ends along an axis: the furthest a pivot can be from that end of
+         * the axis with all the polygons between it and the end in one timezone.  That's where the nearest polygon
+         * of another timezone than the nearest polygon's starts (or ends), or, if the nearest polygons are of
+         * different timezones, the end itself, so that no side is pure.
+         */
+        private double purityLimit(double[] edges, boolean fromStart)
         {
-            int nLeft=0, nRight=0;
-            int leftTz=-1, rightTz=-1;
-            for (TimezonePolygon poly : polys) {
-                double rightMax,leftMin;
-                if (splitOnLat) {
-                    rightMax = poly.box.lat2;
-                    leftMin = poly.box.lat1;
-                }
-                else {
-                    rightMax = poly.box.lng2;
-                    leftMin = poly.box.lng1;
-                }
-                assert poly.tz != 0;
-                if (rightMax > pivot) {
-                    nRight++;
-                    if (rightTz < 0)
-                        rightTz = poly.tz;
-                    else if (rightTz != poly.tz)
-                        rightTz = 0;
-                }
-                if (leftMin < pivot) {
-                    nLeft++;
-                    if (leftTz < 0)
-                        leftTz = poly.tz;
-                    else if (leftTz != poly.tz)
-                        leftTz = 0;
+            double sign = fromStart ? 1 : -1;
+            double nearest = Double.MAX_VALUE;
+            int tz = 0;
+            for (int i=0; i < edges.length; i++) {
+                double edge = sign * edges[i];
+                if (edge < nearest) {
+                    nearest = edge;
+                    tz = polys.get(i).tz;
                 }
             }
-            if (leftTz > 0)
-                nLeft = 1;      // All polys on that side are with the same timezone.
-            if (rightTz > 0)
-                nRight = -1;      // All polys on that side are with the same timezone.
-            return (double)nLeft*nLeft + (double)nRight*nRight;
+            double limit = Double.MAX_VALUE;
+            for (int i=0; i < edges.length; i++) {
+                double edge = sign * edges[i];
+                if (edge == nearest && polys.get(i).tz != tz)
+                    return sign * -Double.MAX_VALUE;
+                if (polys.get(i).tz != tz)
+                    limit = Math.min(limit, edge);
+            }
+            return sign * limit;
         }
 
         int complexity()
@@ -569,6 +692,20 @@ public class TimeZoneMapperConverter {
             return n;
         }
 
+        int leaves()
+        {
+            if (polys == null)
+                return left.leaves() + right.leaves();
+            return 1;
+        }
+
+        int depth()
+        {
+            if (polys == null)
+                return 1 + Math.max(left.depth(), right.depth());
+            return 0;
+        }
+
         public String findTz(LatLong pt)
         {
             if (left == null && polys != null) {
@@ -588,13 +725,32 @@ public class TimeZoneMapperConverter {
 
     private KdTree kdRoot;
 
+    /** Adds to the progress shown, which is the sum of the shares of the subtrees that are done. */
+    private synchronized void showProgress(double amount)
+    {
+        doneProgress += amount;
+        int progress = (int) (doneProgress + 1e-9);
+        if (progress != shownProgress) {
+            System.out.println("[" + progress + "%]");
+            shownProgress = progress;
+        }
+    }
+
     private void makeKdTree()
     {
         System.out.println("Putting into KD-tree");
         kdRoot = new KdTree(-90,90,-180,180);
         kdRoot.polys.addAll(inputPolygons);
-        kdRoot.splitAsNecessary(0, 0.0, 100.0);
-        System.out.println("Finished putting into KD-tree");
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(kdRoot.splitTask(0, 0.0, 100.0));
+        }
+        finally {
+            pool.shutdown();
+        }
+        System.out.println("Finished putting into KD-tree in " + (System.nanoTime() - start) / 1000000 + "ms: " + kdRoot.leaves()
+                + " leaves, " + kdRoot.depth() + " deep, complexity " + kdRoot.complexity());
     }
 
     private void check() throws Polygon.PolygonException {
@@ -614,6 +770,7 @@ public class TimeZoneMapperConverter {
         abstract void toJavaSource(FileWriter o, int indent) throws IOException;
         abstract void toSwiftSource(FileWriter o, int indent) throws IOException;
         abstract void toXamarinSource(FileWriter o, int indent) throws IOException;
+        abstract void toBinaryIndex(BinaryIndex o);
     }
 
     class PureTzNode extends TzNode {
@@ -643,6 +800,11 @@ public class TimeZoneMapperConverter {
         {
             // Steve Andrews ('2ndCharter') never implemented this.
         }
+
+        void toBinaryIndex(BinaryIndex o)
+        {
+            o.addNode(tz << 2 | BinaryIndex.PURE, 0);
+        }
     }
 
     class HorizontalVerticalTzNode extends TzNode {
@@ -661,6 +823,16 @@ public class TimeZoneMapperConverter {
             amountOfText = left.amountOfText + right.amountOfText;
         }
 
+        /** For reading back generated source, where the methods have already been split out. */
+        HorizontalVerticalTzNode(boolean _pivotOnLat, double _pivot, TzNode _left, TzNode _right)
+        {
+            pivotOnLat = _pivotOnLat;
+            pivot = _pivot;
+            left = _left;
+            right = _right;
+            amountOfText = left.amountOfText + right.amountOfText;
+        }
+
         String getTimezone(LatLong latLng)
         {
             return (pivotOnLat ? latLng.lat : latLng.lng)
@@ -705,29 +877,46 @@ public class TimeZoneMapperConverter {
             o.append("else\r\n");
             right.toXamarinSource(o, indent+1);
         }
+
+        void toBinaryIndex(BinaryIndex o)
+        {
+            int node = o.addNode(0, Float.floatToIntBits(Float.parseFloat(Util.formatNumber(pivot, 6))));
+            left.toBinaryIndex(o);
+            o.nodes.set(2*node, o.numNodes() << 2 | (pivotOnLat ? BinaryIndex.LAT : BinaryIndex.LNG));
+            right.toBinaryIndex(o);
+        }
     }
 
     class PolygonTzNode extends TzNode {
         List<TimezonePolygon> polys;
+        int defaultTz;
 
         public PolygonTzNode(List<TimezonePolygon> _polys)
         {
             polys = _polys;
             amountOfText = polys.size();
+            defaultTz = mostCommonTz(polys);
+        }
+
+        /** For reading back generated source, where only the non-default polygons survive. */
+        PolygonTzNode(List<TimezonePolygon> _polys, int _defaultTz)
+        {
+            polys = _polys;
+            amountOfText = polys.size();
+            defaultTz = _defaultTz;
         }
 
         String getTimezone(LatLong latLng)
         {
             for (TimezonePolygon tzPoly : polys)
-                if (tzPoly.contains(latLng))
+                if (tzPoly.tz != defaultTz && tzPoly.contains(latLng))
                     return tzPoly.tzstring;
-            return null;
+            return int2tzstring.get(defaultTz);
         }
 
         void toJavaSource(FileWriter o, int indent) throws IOException
         {
             // Output polygon things for the others:
-            int defaultTz = mostCommonTz(polys);
             outputIndent(o, indent);
             boolean needsElse = false;
             o.append("{\r\n");
@@ -736,7 +925,7 @@ public class TimeZoneMapperConverter {
                     continue;
                 outputIndent(o, indent);
                 int n = polygonsForOutput.size();
-                o.append("if (poly[" + n + "].contains(lat,lng)) return " + tzPoly.tz + ";\r\n");
+                o.append("if (poly(" + n + ").contains(lat,lng)) return " + tzPoly.tz + ";\r\n");
                 polygonsForOutput.add(tzPoly);
                 needsElse = true;
             }
@@ -750,7 +939,6 @@ public class TimeZoneMapperConverter {
         void toSwiftSource(FileWriter o, int indent) throws IOException
         {
             // Output polygon things for the others:
-            int defaultTz = mostCommonTz(polys);
             boolean needsElse = false;
             for (TimezonePolygon tzPoly : polys) {
                 if (tzPoly.tz == defaultTz)
@@ -770,6 +958,21 @@ public class TimeZoneMapperConverter {
         {
             // Steve Andrews ('2ndCharter') never implemented this.
         }
+
+        void toBinaryIndex(BinaryIndex o)
+        {
+            int leaf = o.leaves.size();
+            o.addNode(leaf << 2 | BinaryIndex.POLYGONS, 0);
+            o.leaves.add(0);
+            o.leaves.add(defaultTz);
+            for (TimezonePolygon tzPoly : polys) {
+                if (tzPoly.tz == defaultTz)
+                    continue;
+                o.leaves.add(o.polygonNumber(tzPoly));
+                o.leaves.add(tzPoly.tz);
+                o.leaves.set(leaf, o.leaves.get(leaf) + 1);
+            }
+        }
     }
 
     class SeparateMethodTzNode extends TzNode {
@@ -784,6 +987,15 @@ public class TimeZoneMapperConverter {
             methodsForOutput.add(this);
         }
 
+        /** For reading back generated source. The caller must put 'methodsForOutput' back into methodNum order. */
+        SeparateMethodTzNode(TzNode _node, int _methodNum)
+        {
+            amountOfText = 0;
+            body = _node;
+            methodNum = _methodNum;
+            methodsForOutput.add(this);
+        }
+
         @Override
         String getTimezone(LatLong latLong)
         {
@@ -808,6 +1020,11 @@ public class TimeZoneMapperConverter {
         {
             // Steve Andrews ('2ndCharter') never implemented this.
         }
+
+        void toBinaryIndex(BinaryIndex o)
+        {
+            body.toBinaryIndex(o);
+        }
     }
 
     private int mostCommonTz(List<TimezonePolygon> polys)
@@ -841,6 +1058,8 @@ public class TimeZoneMapperConverter {
     }
 
     private List<TimezonePolygon> polygonsForOutput = new ArrayList<>();
+    private static final int POLYGONS_PER_SLAB = 100;
+    private static final int VALUES_PER_CHUNK = 500;
     private List<SeparateMethodTzNode> methodsForOutput = new ArrayList<>();
 
     private void resetOutputCounts() {
@@ -871,6 +1090,152 @@ public class TimeZoneMapperConverter {
 
 
 
+    /*------------------ Reading back a previously generated TimezoneMapper.java: -----------------*/
+
+    private static final Pattern METHOD_HEADER = Pattern.compile("\\s*private static int (getTzInt|call\\d+)\\(float lat, float lng\\)\\s*");
+    private static final Pattern POLYGON = Pattern.compile("new TzPolygon\\(([^)]*)\\)");
+    private static final Pattern IF_PIVOT = Pattern.compile("if \\((lat|lng) < (-?[0-9.]+)f\\)");
+    private static final Pattern RETURN_CALL = Pattern.compile("return call(\\d+)\\(lat,lng\\);");
+    private static final Pattern RETURN_TZ = Pattern.compile("return (\\d+);");
+    private static final Pattern IF_POLYGON = Pattern.compile("if \\(poly[\\[(](\\d+)[\\])]\\.contains\\(lat,lng\\)\\) return (\\d+);");
+    private static final Pattern ELSE_RETURN_TZ = Pattern.compile("else return (\\d+);");
+
+    /**
+     * The shapefile json isn't kept alongside the generated code, so if all we want is to change the
+     * layout of the generated code then we can read the succinct tree, the polygons and the timezone
+     * strings back out of a TimezoneMapper.java that we generated earlier.
+     */
+    private TzNode readJavaSource(String filename) throws IOException
+    {
+        System.out.println("Reading back " + filename);
+        List<String> lines = Files.readAllLines(Paths.get(filename), StandardCharsets.UTF_8);
+
+        // The timezone strings, in the same order as before:
+        int i = 0;
+        while (! lines.get(i).contains("timezoneStrings = {"))
+            i++;
+        for (i++; ! lines.get(i).trim().equals("};"); i++) {
+            String s = lines.get(i).trim();
+            String tzstring = s.substring(1, s.lastIndexOf('"')).intern();
+            tzstringToIntMap.put(tzstring, int2tzstring.size());
+            int2tzstring.add(tzstring);
+        }
+        tzNum = int2tzstring.size();
+
+        // The method bodies:
+        Map<String, List<String>> methods = new HashMap<>();
+        for ( ; i < lines.size(); i++) {
+            Matcher m = METHOD_HEADER.matcher(lines.get(i));
+            if (! m.matches())
+                continue;
+            List<String> body = new ArrayList<>();
+            for (i += 2; ! lines.get(i).equals("\t}"); i++)
+                body.add(lines.get(i).trim());
+            methods.put(m.group(1), body);
+        }
+
+        // The polygons, in the order of their index into poly[]:
+        List<TimezonePolygon> polygons = new ArrayList<>();
+        Matcher m = POLYGON.matcher(String.join("\n", lines));
+        while (m.find()) {
+            TimezonePolygon tzPoly = new TimezonePolygon();
+            String[] numbers = m.group(1).split(",");
+            for (int j=0; j + 1 < numbers.length; j += 2)
+                tzPoly.addPoint(parseFloatLiteral(numbers[j]), parseFloatLiteral(numbers[j+1]));
+            polygons.add(tzPoly);
+        }
+
+        methodsForOutput.clear();
+        TzNode root = new JavaSourceReader(methods, polygons).readMethod("getTzInt");
+        Collections.sort(methodsForOutput, new Comparator<SeparateMethodTzNode>() {
+            @Override
+            public int compare(SeparateMethodTzNode node1, SeparateMethodTzNode node2)
+            {
+                return node1.methodNum - node2.methodNum;
+            }
+        });
+        System.out.println("Finished reading " + polygons.size() + " polygons and " + methodsForOutput.size() + " methods.");
+        return root;
+    }
+
+    private static double parseFloatLiteral(String s)
+    {
+        s = s.trim();
+        if (s.endsWith("f"))
+            s = s.substring(0, s.length() - 1);
+        return Double.parseDouble(s);
+    }
+
+    private class JavaSourceReader {
+        final Map<String, List<String>> methods;
+        final List<TimezonePolygon> polygons;
+        List<String> body;
+        int line;
+
+        JavaSourceReader(Map<String, List<String>> _methods, List<TimezonePolygon> _polygons)
+        {
+            methods = _methods;
+            polygons = _polygons;
+        }
+
+        TzNode readMethod(String name) throws IOException
+        {
+            List<String> outerBody = body;
+            int outerLine = line;
+            body = methods.get(name);
+            if (body == null)
+                throw new IOException("Can't find the method " + name);
+            line = 0;
+            TzNode node = readNode();
+            body = outerBody;
+            line = outerLine;
+            return node;
+        }
+
+        TzNode readNode() throws IOException
+        {
+            String s = body.get(line++);
+            Matcher m;
+            if ((m = IF_PIVOT.matcher(s)).matches()) {
+                TzNode left = readNode();
+                expect("else");
+                TzNode right = readNode();
+                return new HorizontalVerticalTzNode(m.group(1).equals("lat"), Double.parseDouble(m.group(2)), left, right);
+            }
+            if ((m = RETURN_CALL.matcher(s)).matches()) {
+                int methodNum = Integer.parseInt(m.group(1));
+                return new SeparateMethodTzNode(readMethod("call" + methodNum), methodNum);
+            }
+            if ((m = RETURN_TZ.matcher(s)).matches())
+                return new PureTzNode(Integer.parseInt(m.group(1)));
+            if (s.equals("{")) {
+                List<TimezonePolygon> polys = new ArrayList<>();
+                while ((m = IF_POLYGON.matcher(body.get(line))).matches()) {
+                    TimezonePolygon tzPoly = polygons.get(Integer.parseInt(m.group(1)));
+                    tzPoly.tz = Integer.parseInt(m.group(2));
+                    tzPoly.tzstring = int2tzstring.get(tzPoly.tz);
+                    polys.add(tzPoly);
+                    line++;
+                }
+                if (! (m = ELSE_RETURN_TZ.matcher(body.get(line++))).matches())
+                    throw new IOException("Expected 'else return' but got: " + body.get(line-1));
+                expect("}");
+                return new PolygonTzNode(polys, Integer.parseInt(m.group(1)));
+            }
+            throw new IOException("Can't make sense of: " + s);
+        }
+
+        private void expect(String expected) throws IOException
+        {
+            String s = body.get(line++);
+            if (! s.equals(expected))
+                throw new IOException("Expected '" + expected + "' but got: " + s);
+        }
+    }
+
+
+
+
     /*---------------------------- Writing to Java: -----------------------*/
 
     private void outputJavaSource(TzNode succinctRoot, String filename) throws IOException
@@ -879,15 +1244,33 @@ public class TimeZoneMapperConverter {
 
         FileWriter writer = new FileWriter(filename);
         writer.append("/** The provided code is written by Tim Cooper:   tim@edval.com.au\r\n");
-        writer.append("This code is available under the MIT licence:  https://opensource.org/licenses/MIT  */\n\n");
+        writer.append("This code is available under the MIT licence:  https://opensource.org/licenses/MIT  */\n");
+        writer.append("package com.skedgo.converter;\n\n");
+        writer.append("import java.time.ZoneId;\r\n" +
+                "import java.util.TimeZone;\r\n" +
+                "import java.util.concurrent.atomic.AtomicReferenceArray;\r\n");
         writer.append("\npublic class TimezoneMapper {\r\n\r\n");
 
         // Entry-point method:
         writer.append("    public static String latLngToTimezoneString(double lat, double lng)\n" +
                 "    {\n" +
-                "        String tzId = timezoneStrings[getTzInt((float) lat, (float) lng)];\n" +
+                "        String tzId = timezoneStrings[lookup((float) lat, (float) lng)];\n" +
                 "        return tzId;\n" +
                 "    }\n" +
+                "\n" +
+                "    /** Looks up a whole batch of points at once: out[i] is set to the timezone index of (lats[i],lngs[i])\n" +
+                "     * for i in offset..offset+len-1.  Use timezoneIndexToString() to turn an index into a timezone id. */\n" +
+                "    public static void latLngToTimezoneIndices(double[] lats, double[] lngs, int offset, int len, short[] out)\n" +
+                "    {\n" +
+                "        int end = offset + len;\n" +
+                "        for (int i = offset; i < end; i++)\n" +
+                "            out[i] = (short) lookup((float) lats[i], (float) lngs[i]);\n" +
+                "    }\n" +
+                "\n" +
+                "    public static String timezoneIndexToString(int tzIndex)\n" +
+                "    {\n" +
+                "        return timezoneStrings[tzIndex];\n" +
+                "    }\n" +
                 "\n");
 
         // The timezone strings:
@@ -901,6 +1284,58 @@ public class TimeZoneMapperConverter {
         }
         writer.append("\t};\r\n\r\n");
 
+        // The cached ZoneId / TimeZone entry-points, which must come after the timezone strings:
+        writer.append("    private static final AtomicReferenceArray<ZoneId> zoneIds = new AtomicReferenceArray<>(timezoneStrings.length);\n" +
+                "    private static final AtomicReferenceArray<TimeZone> timeZones = new AtomicReferenceArray<>(timezoneStrings.length);\n" +
+                "\n" +
+                "    /** Like latLngToTimezoneString(), but the ZoneId is resolved only once per timezone and then reused.\n" +
+                "     * Returns null for \"unknown\". */\n" +
+                "    public static ZoneId latLngToZoneId(double lat, double lng)\n" +
+                "    {\n" +
+                "        int tz = lookup((float) lat, (float) lng);\n" +
+                "        if (tz == 0)\n" +
+                "            return null;\n" +
+                "        ZoneId zoneId = zoneIds.get(tz);\n" +
+                "        if (zoneId == null) {\n" +
+                "            zoneId = ZoneId.of(timezoneStrings[tz]);\n" +
+                "            zoneIds.set(tz, zoneId);\n" +
+                "        }\n" +
+                "        return zoneId;\n" +
+                "    }\n" +
+                "\n" +
+                "    /** Like latLngToTimezoneString(), but without going through the synchronized TimeZone.getTimeZone() each time.\n" +
+                "     * The TimeZone returned is shared between callers, so don't modify it.  Returns null for \"unknown\". */\n" +
+                "    public static TimeZone latLngToTimeZone(double lat, double lng)\n" +
+                "    {\n" +
+                "        int tz = lookup((float) lat, (float) lng);\n" +
+                "        if (tz == 0)\n" +
+                "            return null;\n" +
+                "        TimeZone timeZone = timeZones.get(tz);\n" +
+                "        if (timeZone == null) {\n" +
+                "            timeZone = TimeZone.getTimeZone(timezoneStrings[tz]);\n" +
+                "            timeZones.set(tz, timeZone);\n" +
+                "        }\n" +
+                "        return timeZone;\n" +
+                "    }\n" +
+                "\n");
+
+        // The choice of engine:
+        writer.append("    /** By default the lookups run the generated code in getTzInt().  With the system property\n" +
+                "     * com.skedgo.converter.TimezoneMapper.engine=tree they walk the same tree as data instead. */\n" +
+                "    private static final boolean walkTree = \"tree\".equals(System.getProperty(\"com.skedgo.converter.TimezoneMapper.engine\"));\n" +
+                "\n" +
+                "    static int lookup(float lat, float lng)\n" +
+                "    {\n" +
+                "        Grid g = grid;\n" +
+                "        if (g != null) {\n" +
+                "            int tz = g.get(lat, lng);\n" +
+                "            if (tz >= 0)\n" +
+                "                return tz;\n" +
+                "        }\n" +
+                "        return walkTree ? getTzIntFromTree(lat, lng) : getTzInt(lat, lng);\n" +
+                "    }\n" +
+                "\n");
+
         // The main stuff:
         writer.append("\tprivate static int getTzInt(float lat, float lng)\n" +
                 "\t{\r\n");
@@ -914,27 +1349,113 @@ public class TimeZoneMapperConverter {
             writer.append("\t}\r\n\r\n");
         }
 
+        // The same tree as data:
+        outputJavaTree(succinctRoot, writer);
+
         // The Polygon class:
         writer.append("    private static class TzPolygon {\n" +
+                "\n" +
+                "        // Polygons with more edges than this also sort their edges into latitude bands, of about\n" +
+                "        // EDGES_PER_BAND edges each, so that contains() only needs to look at the edges in one band.\n" +
+                "        static final int BANDED_EDGES = 24;\n" +
+                "        static final int EDGES_PER_BAND = 4;\n" +
                 "\n" +
                 "        float[] pts;\n" +
+                "        float minLat, maxLat, minLng, maxLng, bandHeight;\n" +
+                "        float[] slopes;     // edge e, which ends at pts[2e], goes slopes[e] degrees of longitude per degree of latitude\n" +
+                "        int[] bandStarts;   // band b's edges are bandEdges[bandStarts[b]] up to bandEdges[bandStarts[b+1]-1]\n" +
+                "        int[] bandEdges;    // each edge as the index in pts of its end point\n" +
                 "\n" +
                 "        TzPolygon(float ... D)\n" +
                 "        {\n" +
                 "            pts = D;\n" +
-                "        }\n\n" +
+                "            makeEdges();\n" +
+                "            if (pts.length / 2 > BANDED_EDGES)\n" +
+                "                makeBands();\n" +
+                "        }\n" +
+                "\n" +
+                "        private void makeEdges()\n" +
+                "        {\n" +
+                "            int n = pts.length;\n" +
+                "            minLat = maxLat = pts[0];\n" +
+                "            minLng = maxLng = pts[1];\n" +
+                "            slopes = new float[n / 2];\n" +
+                "            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {\n" +
+                "                minLat = Math.min(minLat, pts[i]);\n" +
+                "                maxLat = Math.max(maxLat, pts[i]);\n" +
+                "                minLng = Math.min(minLng, pts[i+1]);\n" +
+                "                maxLng = Math.max(maxLng, pts[i+1]);\n" +
+                "                // A horizontal edge never crosses the ray, so its slope is never used:\n" +
+                "                if (pts[i] != pts[j])\n" +
+                "                    slopes[i/2] = (pts[j+1] - pts[i+1]) / (pts[j] - pts[i]);\n" +
+                "            }\n" +
+                "        }\n" +
+                "\n" +
+                "        private void makeBands()\n" +
+                "        {\n" +
+                "            int n = pts.length;\n" +
+                "            int numBands = n / 2 / EDGES_PER_BAND;\n" +
+                "            bandHeight = (maxLat - minLat) / numBands;\n" +
+                "            if (! (bandHeight > 0))\n" +
+                "                return;\n" +
+                "            // Count the edges in each band, then go round again to fill them in:\n" +
+                "            bandStarts = new int[numBands + 1];\n" +
+                "            for (int pass = 0; pass < 2; pass++) {\n" +
+                "                int[] next = pass == 0 ? null : bandStarts.clone();\n" +
+                "                int j = n - 2;\n" +
+                "                for (int i = 0; i < n; i += 2) {\n" +
+                "                    int hi = band(Math.max(pts[i], pts[j]));\n" +
+                "                    for (int b = band(Math.min(pts[i], pts[j])); b <= hi; b++) {\n" +
+                "                        if (pass == 0)\n" +
+                "                            bandStarts[b+1]++;\n" +
+                "                        else\n" +
+                "                            bandEdges[next[b]++] = i;\n" +
+                "                    }\n" +
+                "                    j = i;\n" +
+                "                }\n" +
+                "                if (pass == 0) {\n" +
+                "                    for (int b = 0; b < numBands; b++)\n" +
+                "                        bandStarts[b+1] += bandStarts[b];\n" +
+                "                    bandEdges = new int[bandStarts[numBands]];\n" +
+                "                }\n" +
+                "            }\n" +
+                "        }\n" +
+                "\n" +
+                "        private int band(float lat)\n" +
+                "        {\n" +
+                "            return Math.min((int) ((lat - minLat) / bandHeight), bandStarts.length - 2);\n" +
+                "        }\n" +
+                "\n" +
                 "        public boolean contains(float testy, float testx)\n" +
                 "        {\n" +
+                "            // Outside the polygon's latitudes no edge crosses the ray, east of it none is to the east of the\n" +
+                "            // point, and well west of it every edge that crosses the ray does, which is an even number:\n" +
+                "            if (! (testy >= minLat && testy < maxLat && testx < maxLng && testx >= minLng - 0.001f))\n" +
+                "                return false;\n" +
+                "            if (bandStarts == null)\n" +
+                "                return containsLinear(testy, testx);\n" +
+                "            boolean inside = false;\n" +
+                "            int n = pts.length;\n" +
+                "            int b = band(testy);\n" +
+                "            for (int e = bandStarts[b]; e < bandStarts[b+1]; e++) {\n" +
+                "                int i = bandEdges[e];\n" +
+                "                int j = i == 0 ? n - 2 : i - 2;\n" +
+                "                float yi = pts[i];\n" +
+                "                if ( ((yi>testy) != (pts[j]>testy)) && (testx < slopes[i>>1] * (testy-yi) + pts[i+1] - 0.0001f))\n" +
+                "                    inside = !inside;\n" +
+                "            }\n" +
+                "            return inside;\n" +
+                "        }\n" +
+                "\n" +
+                "        private boolean containsLinear(float testy, float testx)\n" +
+                "        {\n" +
                 "            boolean inside = false;\n" +
                 "            int n = pts.length;\n" +
                 "            float yj = pts[n-2];\n" +
-                "            float xj = pts[n-1];\n" +
-                "            for (int i = 0; i < n; ) {\n" +
-                "                float yi = pts[i++];\n" +
-                "                float xi = pts[i++];\n" +
-                "                if ( ((yi>testy) != (yj>testy)) && (testx < (xj-xi) * (testy-yi) / (yj-yi) + xi - 0.0001f))\n" +
+                "            for (int i = 0; i < n; i += 2) {\n" +
+                "                float yi = pts[i];\n" +
+                "                if ( ((yi>testy) != (yj>testy)) && (testx < slopes[i>>1] * (testy-yi) + pts[i+1] - 0.0001f))\n" +
                 "                    inside = !inside;\n" +
-                "                xj = xi;\n" +
                 "                yj = yi;\n" +
                 "            }\n" +
                 "            return inside;\n" +
@@ -942,40 +1463,403 @@ public class TimeZoneMapperConverter {
                 "    }\n" +
                 "\n\n");
 
-        // The polygons:
-        writer.append("\tprivate static TzPolygon[] poly = initPolyArray();\r\n\r\n");
-        int slab = 1;
+        // The polygons.  Each slab is the static initializer of its own class, so it is only run the first
+        // time one of its polygons is needed, and that is made thread-safe for us by the JVM.
+        int numSlabs = (polygonsForOutput.size() + POLYGONS_PER_SLAB - 1) / POLYGONS_PER_SLAB;
+        writer.append("\tprivate static TzPolygon poly(int i)\r\n" +
+                "\t{\r\n" +
+                "\t\treturn slab(i / " + POLYGONS_PER_SLAB + ")[i % " + POLYGONS_PER_SLAB + "];\r\n" +
+                "\t}\r\n\r\n");
+        writer.append("\tprivate static TzPolygon[] slab(int n)\r\n" +
+                "\t{\r\n" +
+                "\t\tswitch (n) {\r\n");
+        for (int slab=1; slab <= numSlabs; slab++)
+            writer.append("\t\t\tcase " + (slab-1) + ": return Initializer" + slab + ".slab;\r\n");
+        writer.append("\t\t\tdefault: throw new ArrayIndexOutOfBoundsException(n);\r\n" +
+                "\t\t}\r\n" +
+                "\t}\r\n\r\n");
+        writer.append("\t/** The polygons are normally created a slab at a time, as they're first needed. This creates them all\r\n" +
+                "\t * now instead, e.g. to take that cost at startup rather than during the first lookups. */\r\n" +
+                "\tpublic static void preloadPolygons()\r\n" +
+                "\t{\r\n" +
+                "\t\tfor (int n=0; n < " + numSlabs + "; n++)\r\n" +
+                "\t\t\tslab(n);\r\n" +
+                "\t}\r\n");
         int idx = 0;
-        do {
+        for (int slab=1; slab <= numSlabs; slab++) {
             writer.append("\r\n\tprivate static class Initializer" + slab + " {\r\n");
-            writer.append("\t\tprivate static void init() {\r\n");
+            writer.append("\t\tstatic final TzPolygon[] slab = {\r\n");
             int numInSlab = 0;
             do {
                 TimezonePolygon tzPoly = polygonsForOutput.get(idx);
-                writer.append("\t\t\tpoly[" + idx + "] = ");
+                writer.append("\t\t\t");
                 idx++;
                 tzPoly.toJavaSource(writer, 3);
-                writer.append(";\r\n");
-            } while (idx < polygonsForOutput.size() && ++numInSlab < 100);
-            writer.append("\t\t}\r\n");
+                writer.append(",\r\n");
+            } while (idx < polygonsForOutput.size() && ++numInSlab < POLYGONS_PER_SLAB);
+            writer.append("\t\t};\r\n");
             writer.append("\t}\r\n");
-            slab++;
-        } while (idx < polygonsForOutput.size());
-        writer.append("\r\n\tstatic TzPolygon[] initPolyArray()\n" +
-                "\t{\n" +
-                "\t\tpoly = new TzPolygon[" + polygonsForOutput.size() + "];\n" +
-                "\r\n");
-        for (int i=1; i < slab; i++) {
-            writer.append("\t\tInitializer" + i + ".init();\r\n");
         }
-        writer.append("\t\treturn poly;\n" +
-                "\t}\r\n\r\n");
+        writer.append("\r\n");
 
         //
         writer.append("}\r\n\r\n");
         writer.close();
     }
 
+    /**
+     * Writes the tree a second time, as the arrays of a BinaryIndex, with a small interpreter to walk them.
+     * It gives the same answers as getTzInt(), but as a few small methods which the JIT always compiles,
+     * whichever way the generated methods go.  This must come after the methods have numbered the polygons.
+     */
+    private void outputJavaTree(TzNode succinctRoot, FileWriter writer) throws IOException
+    {
+        BinaryIndex tree = new BinaryIndex(polygonsForOutput);
+        succinctRoot.toBinaryIndex(tree);
+        List<String> words = new ArrayList<>();
+        List<String> pivots = new ArrayList<>();
+        for (int i=0; i < tree.nodes.size(); i += 2) {
+            words.add(Integer.toString(tree.nodes.get(i)));
+            pivots.add(Float.toString(Float.intBitsToFloat(tree.nodes.get(i+1))));
+        }
+        List<String> leaves = new ArrayList<>();
+        for (int i : tree.leaves)
+            leaves.add(Integer.toString(i));
+
+        writer.append("\t/** Does the same as getTzInt(), but by walking the arrays in Tree instead of running generated code. */\r\n" +
+                "\tstatic int getTzIntFromTree(float lat, float lng)\r\n" +
+                "\t{\r\n" +
+                "\t\tint[] nodes = Tree.nodes;\r\n" +
+                "\t\tfloat[] pivots = Tree.pivots;\r\n" +
+                "\t\tint node = 0;\r\n" +
+                "\t\twhile (true) {\r\n" +
+                "\t\t\tint word = nodes[node];\r\n" +
+                "\t\t\tswitch (word & 3) {\r\n" +
+                "\t\t\t\tcase 0:\r\n" +
+                "\t\t\t\t\tnode = lat < pivots[node] ? node + 1 : word >>> 2;\r\n" +
+                "\t\t\t\t\tbreak;\r\n" +
+                "\t\t\t\tcase 1:\r\n" +
+                "\t\t\t\t\tnode = lng < pivots[node] ? node + 1 : word >>> 2;\r\n" +
+                "\t\t\t\t\tbreak;\r\n" +
+                "\t\t\t\tdefault:\r\n" +
+                "\t\t\t\t\treturn leafTz(node, lat, lng);\r\n" +
+                "\t\t\t}\r\n" +
+                "\t\t}\r\n" +
+                "\t}\r\n" +
+                "\r\n" +
+                "\t/** Walks Tree down to the leaf which (lat,lng) is in, and returns the leaf's node.  bounds is set to the leaf's\r\n" +
+                "\t * rectangle, as {latFrom, latTo, lngFrom, lngTo}: every point with latFrom <= lat < latTo and lngFrom <= lng < lngTo\r\n" +
+                "\t * ends up in the same leaf.  Edges on the outside of the world are infinite. */\r\n" +
+                "\tstatic int findLeaf(float lat, float lng, float[] bounds)\r\n" +
+                "\t{\r\n" +
+                "\t\tint[] nodes = Tree.nodes;\r\n" +
+                "\t\tfloat[] pivots = Tree.pivots;\r\n" +
+                "\t\tbounds[0] = bounds[2] = Float.NEGATIVE_INFINITY;\r\n" +
+                "\t\tbounds[1] = bounds[3] = Float.POSITIVE_INFINITY;\r\n" +
+                "\t\tint node = 0;\r\n" +
+                "\t\twhile (true) {\r\n" +
+                "\t\t\tint word = nodes[node];\r\n" +
+                "\t\t\tswitch (word & 3) {\r\n" +
+                "\t\t\t\tcase 0:\r\n" +
+                "\t\t\t\t\tif (lat < pivots[node]) {\r\n" +
+                "\t\t\t\t\t\tbounds[1] = pivots[node];\r\n" +
+                "\t\t\t\t\t\tnode++;\r\n" +
+                "\t\t\t\t\t}\r\n" +
+                "\t\t\t\t\telse {\r\n" +
+                "\t\t\t\t\t\tbounds[0] = pivots[node];\r\n" +
+                "\t\t\t\t\t\tnode = word >>> 2;\r\n" +
+                "\t\t\t\t\t}\r\n" +
+                "\t\t\t\t\tbreak;\r\n" +
+                "\t\t\t\tcase 1:\r\n" +
+                "\t\t\t\t\tif (lng < pivots[node]) {\r\n" +
+                "\t\t\t\t\t\tbounds[3] = pivots[node];\r\n" +
+                "\t\t\t\t\t\tnode++;\r\n" +
+                "\t\t\t\t\t}\r\n" +
+                "\t\t\t\t\telse {\r\n" +
+                "\t\t\t\t\t\tbounds[2] = pivots[node];\r\n" +
+                "\t\t\t\t\t\tnode = word >>> 2;\r\n" +
+                "\t\t\t\t\t}\r\n" +
+                "\t\t\t\t\tbreak;\r\n" +
+                "\t\t\t\tdefault:\r\n" +
+                "\t\t\t\t\treturn node;\r\n" +
+                "\t\t\t}\r\n" +
+                "\t\t}\r\n" +
+                "\t}\r\n" +
+                "\r\n" +
+                "\t/** The timezone of (lat,lng), which must be in the given leaf of Tree. */\r\n" +
+                "\tstatic int leafTz(int node, float lat, float lng)\r\n" +
+                "\t{\r\n" +
+                "\t\tint word = Tree.nodes[node];\r\n" +
+                "\t\tif ((word & 3) == 2)\r\n" +
+                "\t\t\treturn word >>> 2;\r\n" +
+                "\t\tint[] leaves = Tree.leaves;\r\n" +
+                "\t\tint leaf = word >>> 2;\r\n" +
+                "\t\tint end = leaf + 2 + 2 * leaves[leaf];\r\n" +
+                "\t\tfor (int i = leaf + 2; i < end; i += 2)\r\n" +
+                "\t\t\tif (poly(leaves[i]).contains(lat,lng)) return leaves[i+1];\r\n" +
+                "\t\treturn leaves[leaf+1];\r\n" +
+                "\t}\r\n" +
+                "\r\n");
+        writer.append("\t/** The points of the polygons which leafTz() tests in the given leaf of Tree, each as TzPolygon keeps them. */\r\n" +
+                "\tstatic float[][] leafPolygons(int node)\r\n" +
+                "\t{\r\n" +
+                "\t\tint word = Tree.nodes[node];\r\n" +
+                "\t\tif ((word & 3) == 2)\r\n" +
+                "\t\t\treturn new float[0][];\r\n" +
+                "\t\tint[] leaves = Tree.leaves;\r\n" +
+                "\t\tint leaf = word >>> 2;\r\n" +
+                "\t\tfloat[][] result = new float[leaves[leaf]][];\r\n" +
+                "\t\tfor (int i = 0; i < result.length; i++)\r\n" +
+                "\t\t\tresult[i] = poly(leaves[leaf + 2 + 2*i]).pts;\r\n" +
+                "\t\treturn result;\r\n" +
+                "\t}\r\n" +
+                "\r\n");
+        writer.append("\t/** The points of polygon i, as TzPolygon keeps them. */\r\n" +
+                "\tstatic float[] polygonPoints(int i)\r\n" +
+                "\t{\r\n" +
+                "\t\treturn poly(i).pts;\r\n" +
+                "\t}\r\n" +
+                "\r\n" +
+                "\t/** The slope of each edge of polygon i, the one ending at polygonPoints(i)[2e] being slopes[e]. */\r\n" +
+                "\tstatic float[] polygonSlopes(int i)\r\n" +
+                "\t{\r\n" +
+                "\t\treturn poly(i).slopes;\r\n" +
+                "\t}\r\n" +
+                "\r\n" +
+                "\tstatic boolean polygonContains(int i, float lat, float lng)\r\n" +
+                "\t{\r\n" +
+                "\t\treturn poly(i).contains(lat, lng);\r\n" +
+                "\t}\r\n" +
+                "\r\n" +
+                "\t/** Whether polygon i's contains() only looks at the edges in one latitude band. */\r\n" +
+                "\tstatic boolean polygonIsBanded(int i)\r\n" +
+                "\t{\r\n" +
+                "\t\treturn poly(i).bandStarts != null;\r\n" +
+                "\t}\r\n" +
+                "\r\n");
+        writer.append("\t/** The same tree as getTzInt(), in pre-order, so that node i's left child is node i+1.  Node i is one of:\r\n" +
+                "\t *     nodes[i] = right << 2 | 0:    if (lat < pivots[i]) go to node i+1, else to node 'right'\r\n" +
+                "\t *     nodes[i] = right << 2 | 1:    if (lng < pivots[i]) go to node i+1, else to node 'right'\r\n" +
+                "\t *     nodes[i] = tz << 2 | 2:       return tz\r\n" +
+                "\t *     nodes[i] = leaf << 2 | 3:     leaves[leaf] polygons, listed as (poly, tz) after the default tz in leaves[leaf+1]\r\n" +
+                "\t * The numbers are kept in strings, which costs far less class file than array initializers do. */\r\n" +
+                "\tstatic class Tree {\r\n");
+        writer.append("\t\tstatic final int[] nodes = ints(");
+        outputJavaChunks(writer, words);
+        writer.append("\t\tstatic final float[] pivots = floats(");
+        outputJavaChunks(writer, pivots);
+        writer.append("\t\tstatic final int[] leaves = ints(");
+        outputJavaChunks(writer, leaves);
+        writer.append("\t}\r\n\r\n");
+        writer.append("\tprivate static int[] ints(int n, String ... chunks)\r\n" +
+                "\t{\r\n" +
+                "\t\tint[] result = new int[n];\r\n" +
+                "\t\tint i = 0;\r\n" +
+                "\t\tfor (String chunk : chunks)\r\n" +
+                "\t\t\tfor (String value : chunk.split(\",\"))\r\n" +
+                "\t\t\t\tresult[i++] = Integer.parseInt(value);\r\n" +
+                "\t\treturn result;\r\n" +
+                "\t}\r\n\r\n");
+        writer.append("\tprivate static float[] floats(int n, String ... chunks)\r\n" +
+                "\t{\r\n" +
+                "\t\tfloat[] result = new float[n];\r\n" +
+                "\t\tint i = 0;\r\n" +
+                "\t\tfor (String chunk : chunks)\r\n" +
+                "\t\t\tfor (String value : chunk.split(\",\"))\r\n" +
+                "\t\t\t\tresult[i++] = Float.parseFloat(value);\r\n" +
+                "\t\treturn result;\r\n" +
+                "\t}\r\n\r\n");
+
+        // The grid in front of the tree, which is filled in from Tree:
+        writer.append("    /** Cells of the grid in front of the tree, if there is one: see useGrid(). */\n" +
+                "    private static volatile Grid grid;\n" +
+                "\n" +
+                "    /**\n" +
+                "     * Puts a grid of cellDegrees x cellDegrees cells in front of the lookups.  Each cell which lies entirely within\n" +
+                "     * a single-timezone region of the tree holds that timezone, so most lookups are answered with two multiplies\n" +
+                "     * and an array read, and only the cells along boundaries still walk the tree.  Smaller cells answer more of the\n" +
+                "     * lookups but take more memory: 2 bytes per cell, so 2MB for 0.25 degrees.  Pass 0 to go back to the tree alone.\n" +
+                "     * Returns the fraction of the cells which the grid answers by itself.\n" +
+                "     */\n" +
+                "    public static double useGrid(double cellDegrees)\n" +
+                "    {\n" +
+                "        if (cellDegrees <= 0) {\n" +
+                "            grid = null;\n" +
+                "            return 0;\n" +
+                "        }\n" +
+                "        Grid g = new Grid((float) (1 / cellDegrees));\n" +
+                "        g.fill(0, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);\n" +
+                "        grid = g;\n" +
+                "        return g.hitRate();\n" +
+                "    }\n" +
+                "\n" +
+                "    private static class Grid {\n" +
+                "        // A cell only gets a timezone if it's this far clear of the region's edges, which covers the rounding in get().\n" +
+                "        static final double MARGIN = 1e-4;\n" +
+                "\n" +
+                "        final float cellsPerDegree;\n" +
+                "        final int rows, cols;\n" +
+                "        final short[] cells;        // the timezone, or -1 to walk the tree\n" +
+                "\n" +
+                "        Grid(float _cellsPerDegree)\n" +
+                "        {\n" +
+                "            cellsPerDegree = _cellsPerDegree;\n" +
+                "            rows = (int) (180 * cellsPerDegree) + 1;\n" +
+                "            cols = (int) (360 * cellsPerDegree) + 1;\n" +
+                "            cells = new short[rows * cols];\n" +
+                "            java.util.Arrays.fill(cells, (short) -1);\n" +
+                "        }\n" +
+                "\n" +
+                "        int get(float lat, float lng)\n" +
+                "        {\n" +
+                "            if (! (lat >= -90 && lat < 90 && lng >= -180 && lng < 180))\n" +
+                "                return -1;\n" +
+                "            return cells[(int) ((lat + 90) * cellsPerDegree) * cols + (int) ((lng + 180) * cellsPerDegree)];\n" +
+                "        }\n" +
+                "\n" +
+                "        /** Fills in the cells which lie wholly within the single-timezone nodes under this node of Tree. */\n" +
+                "        void fill(int node, float latLo, float latHi, float lngLo, float lngHi)\n" +
+                "        {\n" +
+                "            int word = Tree.nodes[node];\n" +
+                "            float pivot = Tree.pivots[node];\n" +
+                "            switch (word & 3) {\n" +
+                "                case 0:\n" +
+                "                    fill(node + 1, latLo, pivot, lngLo, lngHi);\n" +
+                "                    fill(word >>> 2, pivot, latHi, lngLo, lngHi);\n" +
+                "                    break;\n" +
+                "                case 1:\n" +
+                "                    fill(node + 1, latLo, latHi, lngLo, pivot);\n" +
+                "                    fill(word >>> 2, latLo, latHi, pivot, lngHi);\n" +
+                "                    break;\n" +
+                "                case 2:\n" +
+                "                    int rowFrom = Math.max(0, (int) Math.ceil((latLo + 90 + MARGIN) * cellsPerDegree));\n" +
+                "                    int rowTo = Math.min(rows, (int) Math.floor((latHi + 90 - MARGIN) * cellsPerDegree));\n" +
+                "                    int colFrom = Math.max(0, (int) Math.ceil((lngLo + 180 + MARGIN) * cellsPerDegree));\n" +
+                "                    int colTo = Math.min(cols, (int) Math.floor((lngHi + 180 - MARGIN) * cellsPerDegree));\n" +
+                "                    for (int row = rowFrom; row < rowTo; row++) {\n" +
+                "                        for (int col = colFrom; col < colTo; col++)\n" +
+                "                            cells[row * cols + col] = (short) (word >>> 2);\n" +
+                "                    }\n" +
+                "                    break;\n" +
+                "            }\n" +
+                "        }\n" +
+                "\n" +
+                "        double hitRate()\n" +
+                "        {\n" +
+                "            int hits = 0;\n" +
+                "            for (short tz : cells)\n" +
+                "                if (tz >= 0)\n" +
+                "                    hits++;\n" +
+                "            return hits / (double) cells.length;\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n");
+    }
+
+    /** The count, then the values as comma-separated strings, each small enough to be a single class file constant. */
+    private void outputJavaChunks(FileWriter writer, List<String> values) throws IOException
+    {
+        writer.append(values.size() + ",\r\n");
+        for (int i=0; i < values.size(); i += VALUES_PER_CHUNK) {
+            List<String> chunk = values.subList(i, Math.min(i + VALUES_PER_CHUNK, values.size()));
+            writer.append("\t\t\t\"" + String.join(",", chunk) + "\"");
+            writer.append(i + VALUES_PER_CHUNK < values.size() ? ",\r\n" : ");\r\n");
+        }
+    }
+
+    /*---------------------------- Writing the binary index: -----------------------*/
+
+    /**
+     * The same tree and polygons as the generated source, but as a data file which TimezoneIndex
+     * can memory-map, so that the data can be updated without recompiling anything.
+     * Everything is big-endian, as written by DataOutputStream:
+     *
+     *   int MAGIC, int VERSION, int numNodes, int numLeafInts, int numPolygons, int numCoords, int numTimezones
+     *   the nodes, 8 bytes each, in pre-order so that a node's left child immediately follows it:
+     *       int (right child << 2 | LAT), float pivot       "if (lat < pivot) left else right"
+     *       int (right child << 2 | LNG), float pivot       "if (lng < pivot) left else right"
+     *       int (tz << 2 | PURE), int 0                     "return tz"
+     *       int (leaf << 2 | POLYGONS), int 0               test the polygons listed at leaves[leaf]
+     *   the leaves, as ints:  count, defaultTz, then 'count' pairs of (polygon, tz)
+     *   numPolygons+1 ints: polygon i is made of the coords from start[i] to start[i+1]
+     *   the coords, as floats:  lat,lng,lat,lng...
+     *   the timezone strings, each written with writeUTF()
+     */
+    class BinaryIndex {
+        static final int LAT = 0, LNG = 1, PURE = 2, POLYGONS = 3;
+
+        final List<Integer> nodes = new ArrayList<>();
+        final List<Integer> leaves = new ArrayList<>();
+        final List<Integer> polygonStarts = new ArrayList<>();
+        final List<Float> coords = new ArrayList<>();
+        final Map<TimezonePolygon,Integer> polygonNumbers = new IdentityHashMap<>();
+
+        /** The polygons are numbered the same as poly(i) in the generated source, so that the
+         * generated source can carry this same tree as data, for getTzIntFromTree(). */
+        BinaryIndex(List<TimezonePolygon> polygons)
+        {
+            for (TimezonePolygon tzPoly : polygons) {
+                polygonNumbers.put(tzPoly, polygonStarts.size());
+                polygonStarts.add(coords.size());
+                for (LatLong pt : tzPoly.points) {
+                    // Go via the same text as the generated source, so that both give identical answers.
+                    coords.add(Float.parseFloat(Util.formatNumber(pt.lat, 6)));
+                    coords.add(Float.parseFloat(Util.formatNumber(pt.lng, 6)));
+                }
+            }
+            polygonStarts.add(coords.size());
+        }
+
+        int numNodes()
+        {
+            return nodes.size() / 2;
+        }
+
+        int addNode(int word, int pivotBits)
+        {
+            nodes.add(word);
+            nodes.add(pivotBits);
+            return numNodes() - 1;
+        }
+
+        int polygonNumber(TimezonePolygon tzPoly)
+        {
+            return polygonNumbers.get(tzPoly);
+        }
+
+        void write(String filename) throws IOException
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+                out.writeInt(TimezoneIndex.MAGIC);
+                out.writeInt(TimezoneIndex.VERSION);
+                out.writeInt(numNodes());
+                out.writeInt(leaves.size());
+                out.writeInt(polygonStarts.size() - 1);
+                out.writeInt(coords.size());
+                out.writeInt(int2tzstring.size());
+                for (int i : nodes)
+                    out.writeInt(i);
+                for (int i : leaves)
+                    out.writeInt(i);
+                for (int i : polygonStarts)
+                    out.writeInt(i);
+                for (float f : coords)
+                    out.writeFloat(f);
+                for (String s : int2tzstring)
+                    out.writeUTF(s);
+            }
+        }
+    }
+
+    /** This must come after outputJavaSource(), which is what numbers the polygons. */
+    private void outputBinaryIndex(TzNode succinctRoot, String filename) throws IOException
+    {
+        BinaryIndex index = new BinaryIndex(polygonsForOutput);
+        succinctRoot.toBinaryIndex(index);
+        index.write(filename);
+        System.out.println("Wrote " + index.numNodes() + " nodes and " + (index.polygonStarts.size() - 1) + " polygons to " + filename);
+    }
+
        /*---------------------------- Writing to Swift: -----------------------*/
 
     private void outputSwiftSource(TzNode succinctRoot, String filename) throws IOException
@@ -0,0 +1,274 @@
+package com.skedgo.generator.parsing;
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+
+/**
+ * Reads a GeoJSON FeatureCollection of timezones, such as timezone-boundary-builder's releases, one ring at a time,
+ * without building the whole document in memory: only the feature being read is held, as arrays of doubles.
+ * Each feature's timezone is its "tzid" property (or "TZID", or "tz"), and its geometry a Polygon or MultiPolygon;
+ * other geometries are skipped.
+ *
+ * Each part of a MultiPolygon gives its outer ring and then its holes, as separate polygons, as ShapefileReader
+ * does.  They're also turned the same way as a shapefile's: outer rings clockwise, and holes, which set 'hole',
+ * anticlockwise, whichever way the file has them (RFC 7946 has them the other way round).
+ */
+public class GeoJsonReader extends PolygonReader {
+    private final Reader reader;
+    private final JSONTokener x;
+    private boolean inFeatures, finished;
+
+    // The current feature: its timezone, all its points, where each ring ends, and which rings are holes.
+    private String featureTz;
+    private double[] featureLats = new double[1024];
+    private double[] featureLngs = new double[1024];
+    private int numPoints;
+    private int[] ringEnds = new int[16];
+    private boolean[] ringHoles = new boolean[16];
+    private int numRings, ring;
+
+    public GeoJsonReader(Reader _reader)
+    {
+        reader = _reader;
+        x = new JSONTokener(reader);
+    }
+
+    @Override
+    public boolean next() throws JSONException
+    {
+        while (ring >= numRings) {
+            if (! nextFeature()) {
+                tz = null;
+                size = 0;
+                return false;
+            }
+        }
+        int from = ring == 0 ? 0 : ringEnds[ring-1];
+        int to = ringEnds[ring];
+        tz = featureTz;
+        hole = ringHoles[ring];
+        ring++;
+
+        // Closed rings repeat their first point at the end, as shapefiles' do.  Clockwise means a negative area here:
+        double area = 0;
+        for (int i = from, j = to - 1; i < to; j = i++)
+            area += (featureLngs[j] - featureLngs[i]) * (featureLats[j] + featureLats[i]);
+        boolean reverse = (area > 0) != hole;
+        size = 0;
+        for (int i = from; i < to; i++) {
+            int k = reverse ? from + to - 1 - i : i;
+            addPoint(featureLats[k], featureLngs[k]);
+        }
+        return true;
+    }
+
+    /** Reads up to the end of the next feature with rings.  Gives false once there are no more. */
+    private boolean nextFeature() throws JSONException
+    {
+        for (;;) {
+            if (finished)
+                return false;
+            if (! inFeatures) {
+                findFeatures();
+                continue;
+            }
+            char c = x.nextClean();
+            if (c == ']') {
+                finished = true;
+                continue;
+            }
+            if (c == ',')
+                c = x.nextClean();
+            if (c != '{')
+                throw x.syntaxError("A feature must be an object");
+            readFeature();
+            if (numRings > 0 && featureTz != null)
+                return true;
+        }
+    }
+
+    /** Skips the FeatureCollection's other keys, up to the start of its "features" array. */
+    private void findFeatures() throws JSONException
+    {
+        if (x.nextClean() != '{')
+            throw x.syntaxError("A GeoJSON FeatureCollection must start with '{'");
+        for (;;) {
+            char c = x.nextClean();
+            if (c == '}') {
+                finished = true;
+                return;
+            }
+            if (c == ',')
+                c = x.nextClean();
+            if (c != '"')
+                throw x.syntaxError("A key must be a string");
+            String key = x.nextString('"');
+            if (x.nextClean() != ':')
+                throw x.syntaxError("Expected a ':' after a key");
+            if (key.equals("features")) {
+                if (x.nextClean() != '[')
+                    throw x.syntaxError("Expected a '[' of features");
+                inFeatures = true;
+                return;
+            }
+            x.nextValue();
+        }
+    }
+
+    /** Reads a feature, after its '{'. */
+    private void readFeature() throws JSONException
+    {
+        featureTz = null;
+        numPoints = numRings = ring = 0;
+        String type = null;
+        for (;;) {
+            char c = x.nextClean();
+            if (c == '}')
+                break;
+            if (c == ',')
+                c = x.nextClean();
+            if (c != '"')
+                throw x.syntaxError("A key must be a string");
+            String key = x.nextString('"');
+            if (x.nextClean() != ':')
+                throw x.syntaxError("Expected a ':' after a key");
+            if (key.equals("properties"))
+                readProperties();
+            else if (key.equals("geometry"))
+                type = readGeometry();
+            else x.nextValue();
+        }
+        if (! "Polygon".equals(type) && ! "MultiPolygon".equals(type))
+            numRings = 0;
+    }
+
+    private void readProperties() throws JSONException
+    {
+        char c = x.nextClean();
+        if (c != '{') {
+            x.back();
+            x.nextValue();      // null
+            return;
+        }
+        for (;;) {
+            c = x.nextClean();
+            if (c == '}')
+                return;
+            if (c == ',')
+                c = x.nextClean();
+            if (c != '"')
+                throw x.syntaxError("A key must be a string");
+            String key = x.nextString('"');
+            if (x.nextClean() != ':')
+                throw x.syntaxError("Expected a ':' after a key");
+            Object value = x.nextValue();
+            if (key.equals("tzid") || key.equals("TZID") || key.equals("tz"))
+                featureTz = value.toString();
+        }
+    }
+
+    /** Reads a geometry into the feature's rings, giving its type. */
+    private String readGeometry() throws JSONException
+    {
+        char c = x.nextClean();
+        if (c != '{') {
+            x.back();
+            x.nextValue();      // null
+            return null;
+        }
+        String type = null;
+        for (;;) {
+            c = x.nextClean();
+            if (c == '}')
+                return type;
+            if (c == ',')
+                c = x.nextClean();
+            if (c != '"')
+                throw x.syntaxError("A key must be a string");
+            String key = x.nextString('"');
+            if (x.nextClean() != ':')
+                throw x.syntaxError("Expected a ':' after a key");
+            if (key.equals("type"))
+                type = x.nextValue().toString();
+            else if (key.equals("coordinates")) {
+                if (x.nextClean() != '[')
+                    throw x.syntaxError("Expected a '[' of coordinates");
+                readCoordinates();
+            }
+            else x.nextValue();
+        }
+    }
+
+    /**
+     * Reads an array of coordinates, after its '[', giving how deep it is: 1 for a point, 2 for a ring, 3 for a
+     * polygon (whose first ring is its outer one and the rest holes) and 4 for a MultiPolygon.  0 if it's empty.
+     */
+    private int readCoordinates() throws JSONException
+    {
+        char c = x.nextClean();
+        if (c == ']')
+            return 0;
+        x.back();
+        if (c != '[') {
+            // A point is [lng,lat], perhaps with an altitude after it:
+            double lng = x.nextDouble();
+            if (x.nextClean() != ',')
+                throw x.syntaxError("Expected a ',' between the longitude and latitude");
+            double lat = x.nextDouble();
+            while ((c = x.nextClean()) == ',')
+                x.nextDouble();
+            if (c != ']')
+                throw x.syntaxError("Expected a ']' after a point");
+            addFeaturePoint(lat, lng);
+            return 1;
+        }
+        int depth = 0;
+        for (int child = 0; ; child++) {
+            if (x.nextClean() != '[')
+                throw x.syntaxError("Expected a '['");
+            int childDepth = readCoordinates();
+            depth = Math.max(depth, childDepth + 1);
+            if (childDepth == 2)
+                ringHoles[numRings - 1] = child > 0;
+            c = x.nextClean();
+            if (c == ']')
+                break;
+            if (c != ',')
+                throw x.syntaxError("Expected a ',' or ']'");
+        }
+        if (depth == 2)
+            endRing();
+        return depth;
+    }
+
+    private void addFeaturePoint(double lat, double lng)
+    {
+        if (numPoints == featureLats.length) {
+            featureLats = Arrays.copyOf(featureLats, 2 * numPoints);
+            featureLngs = Arrays.copyOf(featureLngs, 2 * numPoints);
+        }
+        featureLats[numPoints] = lat;
+        featureLngs[numPoints] = lng;
+        numPoints++;
+    }
+
+    private void endRing()
+    {
+        if (numRings == ringEnds.length) {
+            ringEnds = Arrays.copyOf(ringEnds, 2 * numRings);
+            ringHoles = Arrays.copyOf(ringHoles, 2 * numRings);
+        }
+        ringEnds[numRings] = numPoints;
+        ringHoles[numRings] = false;
+        numRings++;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
@@ -46,6 +46,7 @@ public class JSONTokener {
     private char 	previous;
     private Reader 	reader;
     private boolean usePrevious;
+    private final StringBuilder number = new StringBuilder();
 
 
     /**
@@ -227,6 +228,104 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Get the next number, straight into a double, so that long arrays of
+     * coordinates can be read cheaply. It must be a number as JSON writes
+     * them, so "+1", ".5" and "1." are errors, and "01" stops after the 0.
+     * Up to 15 digits, and a power of ten up to 22, the digits are exact
+     * in a long and one multiply or divide rounds correctly, just as
+     * Double.parseDouble() would; only longer numbers go through a String.
+     * @return  The number.
+     * @throws JSONException If what's next isn't a number.
+     */
+    public double nextDouble() throws JSONException {
+        this.number.setLength(0);
+        char c = nextClean();
+        boolean negative = c == '-';
+        if (negative) {
+            c = nextNumberChar(c);
+        }
+        long digits = 0;
+        int count = 0, scale = 0;
+        if (c == '0') {
+            c = nextNumberChar(c);
+        } else if (c >= '1' && c <= '9') {
+            do {
+                if (count < 15) {
+                    digits = digits * 10 + (c - '0');
+                } else {
+                    scale++;
+                }
+                count++;
+                c = nextNumberChar(c);
+            } while (c >= '0' && c <= '9');
+        } else {
+            throw notANumber(c);
+        }
+        if (c == '.') {
+            c = nextNumberChar(c);
+            if (c < '0' || c > '9') {
+                throw notANumber(c);
+            }
+            do {
+                if (count < 15) {
+                    digits = digits * 10 + (c - '0');
+                    scale--;
+                }
+                if (count > 0 || c != '0') {
+                    count++;
+                }
+                c = nextNumberChar(c);
+            } while (c >= '0' && c <= '9');
+        }
+        boolean slow = count > 15;
+        if (c == 'e' || c == 'E') {
+            c = nextNumberChar(c);
+            boolean negativeExponent = c == '-';
+            if (c == '-' || c == '+') {
+                c = nextNumberChar(c);
+            }
+            if (c < '0' || c > '9') {
+                throw notANumber(c);
+            }
+            int exponent = 0;
+            do {
+                if (exponent < 1000) {
+                    exponent = exponent * 10 + (c - '0');
+                }
+                c = nextNumberChar(c);
+            } while (c >= '0' && c <= '9');
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        back();
+        if (slow || scale < -22 || scale > 22) {
+            return Double.parseDouble(this.number.toString());
+        }
+        double result = scale < 0 ? digits / POWERS_OF_TEN[-scale] : digits * POWERS_OF_TEN[scale];
+        return negative ? -result : result;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+
+    /**
+     * Keep the character of a number just read, in case nextDouble() needs
+     * it as a String after all, and get the one after it.
+     */
+    private char nextNumberChar(char c) throws JSONException {
+        this.number.append(c);
+        return next();
+    }
+
+
+    private JSONException notANumber(char c) {
+        return syntaxError("Expected a number but saw '" + this.number + (c == 0 ? "" : String.valueOf(c)) + "'");
+    }
+
+
     /**
      * Return the characters up to the next close quote character.
      * Backslash processing is done. The formal JSON format does not
@@ -0,0 +1,117 @@
+package com.skedgo.generator.parsing;
+
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * Reads the polygon file that toJson makes, [{"tz":"...","polygon":[[lng,lat],...]},...], one polygon at a time,
+ * without building a JSONArray of the whole file.  Keys other than "tz" and "polygon" are skipped.
+ */
+public class PolygonJsonReader extends PolygonReader {
+    private final Reader reader;
+    private final JSONTokener x;
+    private boolean started, finished;
+
+    public PolygonJsonReader(Reader _reader)
+    {
+        reader = _reader;
+        x = new JSONTokener(reader);
+    }
+
+    @Override
+    public boolean next() throws JSONException
+    {
+        if (finished)
+            return false;
+        char c = x.nextClean();
+        if (! started) {
+            started = true;
+            if (c != '[')
+                throw x.syntaxError("A JSON array of polygons must start with '['");
+            c = x.nextClean();
+            if (c == ']')
+                return end();
+        }
+        else if (c == ',')
+            c = x.nextClean();
+        else if (c == ']')
+            return end();
+        else throw x.syntaxError("Expected a ',' or ']'");
+        if (c != '{')
+            throw x.syntaxError("A polygon must start with '{'");
+
+        tz = null;
+        size = -1;
+        c = x.nextClean();
+        if (c != '}') {
+            x.back();
+            for (;;) {
+                c = x.nextClean();
+                if (c != '"')
+                    throw x.syntaxError("A key must be a string");
+                String key = x.nextString('"');
+                if (x.nextClean() != ':')
+                    throw x.syntaxError("Expected a ':' after a key");
+                if (key.equals("tz"))
+                    tz = x.nextValue().toString();
+                else if (key.equals("polygon"))
+                    readPoints();
+                else x.nextValue();
+                c = x.nextClean();
+                if (c == '}')
+                    break;
+                if (c != ',')
+                    throw x.syntaxError("Expected a ',' or '}'");
+            }
+        }
+        if (tz == null)
+            throw x.syntaxError("A polygon without a \"tz\"");
+        if (size < 0)
+            throw x.syntaxError("A polygon without a \"polygon\"");
+        return true;
+    }
+
+    private boolean end()
+    {
+        finished = true;
+        tz = null;
+        size = 0;
+        return false;
+    }
+
+    /** Reads [[lng,lat],...] into lats and lngs. */
+    private void readPoints() throws JSONException
+    {
+        size = 0;
+        if (x.nextClean() != '[')
+            throw x.syntaxError("Expected a '[' of points");
+        char c = x.nextClean();
+        if (c == ']')
+            return;
+        x.back();
+        for (;;) {
+            if (x.nextClean() != '[')
+                throw x.syntaxError("Expected a '[' for a point");
+            double lng = x.nextDouble();
+            if (x.nextClean() != ',')
+                throw x.syntaxError("Expected a ',' between the longitude and latitude");
+            double lat = x.nextDouble();
+            if (x.nextClean() != ']')
+                throw x.syntaxError("Expected a ']' after a point");
+            addPoint(lat, lng);
+            c = x.nextClean();
+            if (c == ']')
+                return;
+            if (c != ',')
+                throw x.syntaxError("Expected a ',' or ']' between points");
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
@@ -0,0 +1,37 @@
+package com.skedgo.generator.parsing;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Reads timezone polygons one at a time.  Each call to next() moves on to the next polygon, leaving its timezone
+ * in 'tz' and its points in 'lats' and 'lngs', which are reused from one polygon to the next, so that all that's
+ * held in memory is the biggest polygon so far.
+ */
+public abstract class PolygonReader implements Closeable {
+    /** The current polygon's timezone, and its points, of which there are 'size'. */
+    public String tz;
+    public double[] lats = new double[1024];
+    public double[] lngs = new double[1024];
+    public int size;
+
+    /** Whether the current polygon is a hole in the one before it, for readers that can tell. */
+    public boolean hole;
+
+    /** Moves on to the next polygon.  Gives false once there are no more. */
+    public abstract boolean next() throws IOException, JSONException;
+
+    protected void addPoint(double lat, double lng)
+    {
+        if (size == lats.length) {
+            lats = Arrays.copyOf(lats, 2 * size);
+            lngs = Arrays.copyOf(lngs, 2 * size);
+        }
+        lats[size] = lat;
+        lngs[size] = lng;
+        size++;
+    }
+}
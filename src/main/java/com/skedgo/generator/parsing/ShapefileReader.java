@@ -0,0 +1,151 @@
+package com.skedgo.generator.parsing;
+
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Reads the timezone polygons straight out of a shapefile, such as tz_world.shp, instead of the json that toJson
+ * makes of it.  The .shp, and the .shx and .dbf next to it, are memory-mapped, and the shapes read one ring at a
+ * time, as toJson does: each ring (part) of a shape becomes a polygon of its own, with the shape's timezone,
+ * taken from the "TZID" column of the .dbf.
+ *
+ * Only polygon shapes (types 5, 15 and 25, ignoring any Z and M values) are read; null shapes are skipped.
+ * Each file has to be under 2GB, the most that can be mapped in one go.
+ */
+public class ShapefileReader extends PolygonReader {
+    static final int NULL_SHAPE = 0;
+    static final int POLYGON = 5;
+    static final int POLYGON_Z = 15;
+    static final int POLYGON_M = 25;
+
+    private MappedByteBuffer shp, shx, dbf;
+    private final int numShapes;
+    private final int dbfHeaderLength, dbfRecordLength;
+    private final int tzOffset, tzLength;
+
+    // Where we're up to: the shape, its parts and points, and the next part to read.
+    private int shape = -1;
+    private String shapeTz;
+    private int numParts, numPoints, part;
+    private int partsAt, pointsAt;
+
+    /** 'shpFilename' is the .shp; the .shx and .dbf are expected next to it, with the same name. */
+    public ShapefileReader(String shpFilename) throws IOException
+    {
+        String base = shpFilename.substring(0, shpFilename.length() - ".shp".length());
+        shp = map(Paths.get(shpFilename));
+        shx = map(Paths.get(base + ".shx"));
+        dbf = map(Paths.get(base + ".dbf"));
+
+        if (shp.getInt(0) != 9994 || shx.getInt(0) != 9994)
+            throw new IOException(shpFilename + " isn't a shapefile");
+        numShapes = (shx.limit() - 100) / 8;
+        // The headers and the .shx are big-endian, but the shapes themselves are little-endian:
+        shp.order(ByteOrder.LITTLE_ENDIAN);
+
+        // The .dbf: a header, then a 32-byte descriptor for each column, up to a 0x0d:
+        dbf.order(ByteOrder.LITTLE_ENDIAN);
+        int numRecords = dbf.getInt(4);
+        dbfHeaderLength = dbf.getShort(8) & 0xffff;
+        dbfRecordLength = dbf.getShort(10) & 0xffff;
+        if (numRecords != numShapes)
+            throw new IOException(base + ".dbf has " + numRecords + " records but there are " + numShapes + " shapes");
+        int offset = 1;     // After the record's deletion flag.
+        int found = -1, length = 0;
+        for (int at = 32; at < dbfHeaderLength - 1 && dbf.get(at) != 0x0d; at += 32) {
+            length = dbf.get(at + 16) & 0xff;
+            if (ascii(dbf, at, 11).trim().equalsIgnoreCase("TZID")) {
+                found = offset;
+                break;
+            }
+            offset += length;
+        }
+        if (found < 0)
+            throw new IOException(base + ".dbf has no TZID column");
+        tzOffset = found;
+        tzLength = length;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static String ascii(MappedByteBuffer buffer, int at, int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i=0; i < length; i++)
+            bytes[i] = buffer.get(at + i);
+        int end = 0;
+        while (end < length && bytes[end] != 0)
+            end++;
+        return new String(bytes, 0, end, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+        while (part >= numParts) {
+            if (! nextShape()) {
+                tz = null;
+                size = 0;
+                return false;
+            }
+        }
+
+        // The part's points, from its start to the next part's start, as (x,y) = (lng,lat):
+        int from = shp.getInt(partsAt + 4 * part);
+        int to = part + 1 < numParts ? shp.getInt(partsAt + 4 * (part + 1)) : numPoints;
+        if (from < 0 || to > numPoints || from > to)
+            throw new IOException("Shape " + shape + " has a part from point " + from + " to " + to + " of " + numPoints);
+        part++;
+        tz = shapeTz;
+        size = 0;
+        for (int i = from; i < to; i++) {
+            int at = pointsAt + 16 * i;
+            addPoint(shp.getDouble(at + 8), shp.getDouble(at));
+        }
+        return true;
+    }
+
+    /** Moves on to the next polygon shape, skipping null ones.  Gives false once there are no more. */
+    private boolean nextShape() throws IOException
+    {
+        for (;;) {
+            if (++shape >= numShapes)
+                return false;
+            // The .shx gives where each record is, in 16-bit words, and the record's header is 8 bytes:
+            int at = 2 * shx.getInt(100 + 8 * shape) + 8;
+            int type = shp.getInt(at);
+            if (type == NULL_SHAPE)
+                continue;
+            if (type != POLYGON && type != POLYGON_Z && type != POLYGON_M)
+                throw new IOException("Shape " + shape + " is of type " + type + ", not a polygon");
+            // After the type comes the bounding box (4 doubles), the number of parts and of points, the parts and the points:
+            numParts = shp.getInt(at + 36);
+            numPoints = shp.getInt(at + 40);
+            partsAt = at + 44;
+            pointsAt = partsAt + 4 * numParts;
+            part = 0;
+            shapeTz = ascii(dbf, dbfHeaderLength + shape * dbfRecordLength + tzOffset, tzLength).trim();
+            return true;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        // The mappings go when the buffers are collected.
+        shp = shx = dbf = null;
+    }
+}
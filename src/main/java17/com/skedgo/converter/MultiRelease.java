@@ -0,0 +1,13 @@
+package com.skedgo.converter;
+
+
+/**
+ * Which of the jar's class versions are in use: this one is in META-INF/versions/17.
+ */
+final class MultiRelease {
+    // A method, not a constant, which callers would compile in:
+    static int version()
+    {
+        return 17;
+    }
+}
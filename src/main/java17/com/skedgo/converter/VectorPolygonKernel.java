@@ -0,0 +1,44 @@
+package com.skedgo.converter;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Tests as many points at once as there are float lanes in the CPU's vectors, against each edge of the
+ * polygon in turn.  It doesn't use the polygon's bounds or latitude bands, but it does skip an edge when
+ * none of the points is level with it.  The arithmetic is the same as TzPolygon.contains(), operation for
+ * operation, so the answers are too.
+ */
+class VectorPolygonKernel extends PolygonKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    void contains(int poly, float[] ys, float[] xs, int count, boolean[] inside)
+    {
+        float[] pts = TimezoneMapper.polygonPoints(poly);
+        float[] slopes = TimezoneMapper.polygonSlopes(poly);
+        int n = pts.length;
+        int p = 0;
+        for (; p < SPECIES.loopBound(count); p += SPECIES.length()) {
+            FloatVector y = FloatVector.fromArray(SPECIES, ys, p);
+            FloatVector x = FloatVector.fromArray(SPECIES, xs, p);
+            VectorMask<Float> in = SPECIES.maskAll(false);
+            float yj = pts[n-2];
+            for (int i = 0; i < n; i += 2) {
+                float yi = pts[i];
+                // (yi > y) != (yj > y):
+                VectorMask<Float> level = y.lt(yi).eq(y.lt(yj)).not();
+                if (level.anyTrue()) {
+                    FloatVector edgeX = y.sub(yi).mul(slopes[i>>1]).add(pts[i+1]).sub(0.0001f);
+                    in = in.eq(level.and(x.lt(edgeX))).not();
+                }
+                yj = yi;
+            }
+            in.intoArray(inside, p);
+        }
+        for (; p < count; p++)
+            inside[p] = TimezoneMapper.polygonContains(poly, ys[p], xs[p]);
+    }
+}
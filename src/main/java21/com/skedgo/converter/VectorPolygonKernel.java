@@ -0,0 +1,48 @@
+package com.skedgo.converter;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Tests as many points at once as there are float lanes in the CPU's vectors, against each edge of the
+ * polygon in turn, as the Java 17 version does.  The difference is the last, partial vector of points,
+ * which this version does with masked loads rather than one point at a time.  Whether that's any faster
+ * hasn't been measured.  The arithmetic is the same as TzPolygon.contains(), operation for operation, so the
+ * answers are too.
+ */
+class VectorPolygonKernel extends PolygonKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    void contains(int poly, float[] ys, float[] xs, int count, boolean[] inside)
+    {
+        float[] pts = TimezoneMapper.polygonPoints(poly);
+        float[] slopes = TimezoneMapper.polygonSlopes(poly);
+        int n = pts.length;
+        for (int p = 0; p < count; p += SPECIES.length()) {
+            VectorMask<Float> lanes = SPECIES.indexInRange(p, count);
+            FloatVector y = FloatVector.fromArray(SPECIES, ys, p, lanes);
+            FloatVector x = FloatVector.fromArray(SPECIES, xs, p, lanes);
+            VectorMask<Float> in = SPECIES.maskAll(false);
+            float yj = pts[n-2];
+            for (int i = 0; i < n; i += 2) {
+                float yi = pts[i];
+                // (yi > y) != (yj > y), for the points that are there:
+                VectorMask<Float> level = y.lt(yi).eq(y.lt(yj)).not().and(lanes);
+                if (level.anyTrue()) {
+                    FloatVector edgeX = y.sub(yi).mul(slopes[i>>1]).add(pts[i+1]).sub(0.0001f);
+                    in = in.eq(level.and(x.lt(edgeX))).not();
+                }
+                yj = yi;
+            }
+            if (p + SPECIES.length() <= count)
+                in.intoArray(inside, p);
+            else {
+                for (int k = 0; p + k < count; k++)
+                    inside[p + k] = in.laneIsSet(k);
+            }
+        }
+    }
+}
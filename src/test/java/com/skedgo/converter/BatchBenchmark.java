@@ -0,0 +1,105 @@
+package com.skedgo.converter;
+
+import java.util.Random;
+
+
+/**
+ * Compares the kernels that TimezoneBatch can test points against polygons with, on the polygon-heavy
+ * parts of the map: random points in leaves with at least 'minPolygons' polygons, grouped by leaf as
+ * TimezoneBatch groups them, and each group tested against every polygon of its leaf.  Also times whole
+ * batches of the same points against looking them up one at a time.
+ *
+ * The vector kernel is only there on Java 17 and later, with the incubator module and the java17 classes:
+ *     java --add-modules jdk.incubator.vector
+ *          -cp target/classes:target/classes/META-INF/versions/17:target/test-classes
+ *          com.skedgo.converter.BatchBenchmark [points per leaf] [minPolygons]
+ */
+public class BatchBenchmark {
+
+    public static void main(String[] args)
+    {
+        int perLeaf = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int minPolygons = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        PolygonKernel scalar = new PolygonKernel();
+        PolygonKernel chosen = PolygonKernel.choose();
+        System.out.println("Kernel in use: " + chosen.getClass().getSimpleName());
+
+        // The polygon leaves with enough polygons, and points spread over each one's rectangle:
+        int[] nodes = TimezoneMapper.Tree.nodes;
+        int[] leaves = TimezoneMapper.Tree.leaves;
+        Random random = new Random(42);
+        float[] bounds = new float[4];
+        int numLeaves = 0;
+        float[][] ys = new float[nodes.length][], xs = new float[nodes.length][];
+        int[] leafOf = new int[nodes.length];
+        for (int attempt = 0; attempt < 200000; attempt++) {
+            float lat = (float) (random.nextDouble() * 180 - 90);
+            float lng = (float) (random.nextDouble() * 360 - 180);
+            int node = TimezoneMapper.findLeaf(lat, lng, bounds);
+            if ((nodes[node] & 3) != 3 || leaves[nodes[node] >>> 2] < minPolygons || contains(leafOf, numLeaves, node))
+                continue;
+            float latFrom = Math.max(bounds[0], -90), latTo = Math.min(bounds[1], 90);
+            float lngFrom = Math.max(bounds[2], -180), lngTo = Math.min(bounds[3], 180);
+            leafOf[numLeaves] = node;
+            ys[numLeaves] = new float[perLeaf];
+            xs[numLeaves] = new float[perLeaf];
+            for (int p = 0; p < perLeaf; p++) {
+                ys[numLeaves][p] = latFrom + random.nextFloat() * (latTo - latFrom);
+                xs[numLeaves][p] = lngFrom + random.nextFloat() * (lngTo - lngFrom);
+            }
+            numLeaves++;
+        }
+        long tests = 0;
+        for (int l = 0; l < numLeaves; l++)
+            tests += (long) perLeaf * leaves[nodes[leafOf[l]] >>> 2];
+        System.out.println(numLeaves + " leaves with at least " + minPolygons + " polygons, " + perLeaf + " points each");
+
+        boolean[] inside = new boolean[perLeaf];
+        double[] lats = new double[numLeaves * perLeaf], lngs = new double[numLeaves * perLeaf];
+        for (int l = 0; l < numLeaves; l++) {
+            for (int p = 0; p < perLeaf; p++) {
+                lats[l * perLeaf + p] = ys[l][p];
+                lngs[l * perLeaf + p] = xs[l][p];
+            }
+        }
+        short[] out = new short[lats.length];
+        for (int round = 0; round < 30; round++) {
+            long t0 = System.nanoTime();
+            int sum = kernel(scalar, leafOf, ys, xs, numLeaves, perLeaf, inside);
+            long t1 = System.nanoTime();
+            sum += kernel(chosen, leafOf, ys, xs, numLeaves, perLeaf, inside);
+            long t2 = System.nanoTime();
+            for (int i = 0; i < lats.length; i++)
+                sum += TimezoneMapper.lookup((float) lats[i], (float) lngs[i]);
+            long t3 = System.nanoTime();
+            TimezoneBatch.latLngToTimezoneIndices(lats, lngs, 0, lats.length, out);
+            sum += out[0];
+            long t4 = System.nanoTime();
+            System.out.printf("round %d: containment %.1f ns scalar, %.1f ns %s; per point %.1f ns one at a time, %.1f ns batched  (%d)%n",
+                    round, (t1 - t0) / (double) tests, (t2 - t1) / (double) tests, chosen.getClass().getSimpleName(),
+                    (t3 - t2) / (double) lats.length, (t4 - t3) / (double) lats.length, sum);
+        }
+    }
+
+    private static int kernel(PolygonKernel kernel, int[] leafOf, float[][] ys, float[][] xs, int numLeaves, int perLeaf, boolean[] inside)
+    {
+        int[] leaves = TimezoneMapper.Tree.leaves;
+        int count = 0;
+        for (int l = 0; l < numLeaves; l++) {
+            int leaf = TimezoneMapper.Tree.nodes[leafOf[l]] >>> 2;
+            for (int i = leaf + 2; i < leaf + 2 + 2 * leaves[leaf]; i += 2) {
+                kernel.contains(leaves[i], ys[l], xs[l], perLeaf, inside);
+                for (int p = 0; p < perLeaf; p++)
+                    if (inside[p]) count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(int[] array, int n, int value)
+    {
+        for (int i = 0; i < n; i++)
+            if (array[i] == value) return true;
+        return false;
+    }
+}
@@ -0,0 +1,188 @@
+package com.skedgo.converter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Measures TzPolygon.contains() on the calls that leafTz() makes: random points around the world, each
+ * tested against every polygon of the tree leaf it falls in.  Alongside it runs Previous, a copy of
+ * contains() as it was before each polygon kept its bounds and edge slopes, so the two can be compared on
+ * the same calls, both in nanoseconds per call and in how many edges each call looks at.  That the two give
+ * the same answers is PolygonContainsTest's job.
+ *
+ * Run with:  java -cp target/classes:target/test-classes com.skedgo.converter.ContainsBenchmark [calls]
+ */
+public class ContainsBenchmark {
+
+    public static void main(String[] args)
+    {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+        // The calls, as (polygon, lat, lng):
+        int[] polys = new int[calls];
+        float[] lats = new float[calls], lngs = new float[calls];
+        Previous[] previous = new Previous[0];
+        Random random = new Random(42);
+        float[] bounds = new float[4];
+        for (int c = 0; c < calls; ) {
+            float lat = (float) (random.nextDouble() * 180 - 90);
+            float lng = (float) (random.nextDouble() * 360 - 180);
+            int word = TimezoneMapper.Tree.nodes[TimezoneMapper.findLeaf(lat, lng, bounds)];
+            if ((word & 3) != 3)
+                continue;
+            int[] leaves = TimezoneMapper.Tree.leaves;
+            int leaf = word >>> 2;
+            for (int i = 0; i < leaves[leaf] && c < calls; i++, c++) {
+                polys[c] = leaves[leaf + 2 + 2*i];
+                lats[c] = lat;
+                lngs[c] = lng;
+                if (polys[c] >= previous.length)
+                    previous = Arrays.copyOf(previous, polys[c] * 2);
+                if (previous[polys[c]] == null)
+                    previous[polys[c]] = new Previous(TimezoneMapper.polygonPoints(polys[c]));
+            }
+        }
+
+        // Edges looked at: the current contains() looks at the same ones as before, unless the bounds reject the point.
+        long previousEdges = 0, currentEdges = 0, rejected = 0;
+        for (int c = 0; c < calls; c++) {
+            Previous p = previous[polys[c]];
+            int edges = p.edgesTested(lats[c]);
+            previousEdges += edges;
+            if (p.outsideBounds(lats[c], lngs[c]))
+                rejected++;
+            else
+                currentEdges += edges;
+        }
+        System.out.printf("%d calls: %.1f edges per call before, %.1f now; %.0f%% rejected by the bounds%n",
+                calls, previousEdges / (double) calls, currentEdges / (double) calls, 100.0 * rejected / calls);
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int inside = 0;
+            for (int c = 0; c < calls; c++)
+                if (previous[polys[c]].contains(lats[c], lngs[c])) inside++;
+            long middle = System.nanoTime();
+            int insideNow = 0;
+            for (int c = 0; c < calls; c++)
+                if (TimezoneMapper.polygonContains(polys[c], lats[c], lngs[c])) insideNow++;
+            long end = System.nanoTime();
+            System.out.printf("round %d: %.1f ns per call before, %.1f now  (%d %d inside)%n",
+                    round, (middle - start) / (double) calls, (end - middle) / (double) calls, inside, insideNow);
+        }
+    }
+
+    /** TzPolygon as it was: latitude bands for the bigger polygons, and a division for each edge tested. */
+    private static class Previous {
+        static final int BANDED_EDGES = 24;
+        static final int EDGES_PER_BAND = 4;
+
+        final float[] pts;
+        float minLat, maxLat, minLng, maxLng, bandHeight;
+        int[] bandStarts;
+        int[] bandEdges;
+
+        Previous(float[] _pts)
+        {
+            pts = _pts;
+            int n = pts.length;
+            minLat = maxLat = pts[0];
+            minLng = maxLng = pts[1];
+            for (int i = 2; i < n; i += 2) {
+                minLat = Math.min(minLat, pts[i]);
+                maxLat = Math.max(maxLat, pts[i]);
+                minLng = Math.min(minLng, pts[i+1]);
+                maxLng = Math.max(maxLng, pts[i+1]);
+            }
+            if (n / 2 > BANDED_EDGES)
+                makeBands();
+        }
+
+        private void makeBands()
+        {
+            int n = pts.length;
+            int numBands = n / 2 / EDGES_PER_BAND;
+            bandHeight = (maxLat - minLat) / numBands;
+            if (! (bandHeight > 0))
+                return;
+            bandStarts = new int[numBands + 1];
+            for (int pass = 0; pass < 2; pass++) {
+                int[] next = pass == 0 ? null : bandStarts.clone();
+                int j = n - 2;
+                for (int i = 0; i < n; i += 2) {
+                    int hi = band(Math.max(pts[i], pts[j]));
+                    for (int b = band(Math.min(pts[i], pts[j])); b <= hi; b++) {
+                        if (pass == 0)
+                            bandStarts[b+1]++;
+                        else
+                            bandEdges[next[b]++] = i;
+                    }
+                    j = i;
+                }
+                if (pass == 0) {
+                    for (int b = 0; b < numBands; b++)
+                        bandStarts[b+1] += bandStarts[b];
+                    bandEdges = new int[bandStarts[numBands]];
+                }
+            }
+        }
+
+        private int band(float lat)
+        {
+            return Math.min((int) ((lat - minLat) / bandHeight), bandStarts.length - 2);
+        }
+
+        int edgesTested(float testy)
+        {
+            if (bandStarts == null)
+                return pts.length / 2;
+            if (! (testy >= minLat && testy < maxLat))
+                return 0;
+            int b = band(testy);
+            return bandStarts[b+1] - bandStarts[b];
+        }
+
+        boolean outsideBounds(float testy, float testx)
+        {
+            return ! (testy >= minLat && testy < maxLat && testx < maxLng && testx >= minLng - 0.001f);
+        }
+
+        boolean contains(float testy, float testx)
+        {
+            if (bandStarts == null)
+                return containsLinear(testy, testx);
+            if (! (testy >= minLat && testy < maxLat))
+                return false;
+            boolean inside = false;
+            int n = pts.length;
+            int b = band(testy);
+            for (int e = bandStarts[b]; e < bandStarts[b+1]; e++) {
+                int i = bandEdges[e];
+                int j = i == 0 ? n - 2 : i - 2;
+                float yi = pts[i], xi = pts[i+1];
+                float yj = pts[j], xj = pts[j+1];
+                if ( ((yi>testy) != (yj>testy)) && (testx < (xj-xi) * (testy-yi) / (yj-yi) + xi - 0.0001f))
+                    inside = !inside;
+            }
+            return inside;
+        }
+
+        private boolean containsLinear(float testy, float testx)
+        {
+            boolean inside = false;
+            int n = pts.length;
+            float yj = pts[n-2];
+            float xj = pts[n-1];
+            for (int i = 0; i < n; ) {
+                float yi = pts[i++];
+                float xi = pts[i++];
+                if ( ((yi>testy) != (yj>testy)) && (testx < (xj-xi) * (testy-yi) / (yj-yi) + xi - 0.0001f))
+                    inside = !inside;
+                xj = xi;
+                yj = yi;
+            }
+            return inside;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.skedgo.converter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Compares the steady-state throughput of TimezoneMapper's two engines: the generated code in getTzInt()
+ * and its callN() methods, and getTzIntFromTree() walking the same tree as arrays.  Each engine runs in a
+ * fresh JVM with -XX:+PrintCompilation, and the compilation log is used to report how far the JIT got
+ * with each of the methods involved.  A method that never shows up stayed in the interpreter, which is
+ * what happens to any method bigger than HotSpot's HugeMethodLimit (8000 bytes of bytecode).
+ *
+ * Run with:  java -cp target/classes:target/test-classes com.skedgo.converter.EngineBenchmark [seconds]
+ */
+public class EngineBenchmark {
+
+    private static final Pattern COMPILATION = Pattern.compile(
+            "\\s([0-4])\\s+com\\.skedgo\\.converter\\.TimezoneMapper(\\$\\w+)?::(\\w+) \\((\\d+) bytes\\)(.*)");
+
+    public static void main(String[] args) throws Exception
+    {
+        String seconds = args.length > 0 ? args[0] : "10";
+        for (String engine : new String[] { "code", "tree" })
+            runChild(engine, seconds);
+    }
+
+    private static void runChild(String engine, String seconds) throws IOException, InterruptedException
+    {
+        String java = System.getProperty("java.home") + "/bin/java";
+        Process process = new ProcessBuilder(java, "-XX:+PrintCompilation",
+                "-Dcom.skedgo.converter.TimezoneMapper.engine=" + engine,
+                "-cp", System.getProperty("java.class.path"),
+                EngineBenchmark.Child.class.getName(), seconds)
+                .redirectErrorStream(true)
+                .start();
+
+        // The highest tier each method reached, and its size:
+        Map<String, Integer> tiers = new TreeMap<>();
+        Map<String, Integer> sizes = new TreeMap<>();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    result = line.substring(7);
+                    continue;
+                }
+                Matcher m = COMPILATION.matcher(line);
+                if (! m.find() || m.group(5).contains("made not entrant"))
+                    continue;
+                String method = (m.group(2) == null ? "" : m.group(2).substring(1) + ".") + m.group(3);
+                Integer tier = tiers.get(method);
+                tiers.put(method, Math.max(tier == null ? 0 : tier, Integer.parseInt(m.group(1))));
+                sizes.put(method, Integer.parseInt(m.group(4)));
+            }
+        }
+        if (process.waitFor() != 0 || result == null)
+            throw new IOException("Child JVM failed for engine " + engine);
+
+        System.out.println(engine + ":  " + result + " lookups/s");
+        int generated = 0, generatedC2 = 0, largest = 0;
+        for (Map.Entry<String, Integer> e : tiers.entrySet()) {
+            String method = e.getKey();
+            if (method.equals("getTzInt") || method.matches("call\\d+")) {
+                generated++;
+                if (e.getValue() == 4)
+                    generatedC2++;
+                largest = Math.max(largest, sizes.get(method));
+            }
+            else if (! method.startsWith("Initializer") && ! method.equals("<clinit>")) {
+                System.out.println("    " + method + " (" + sizes.get(method) + " bytes): tier " + e.getValue());
+            }
+        }
+        if (engine.equals("code")) {
+            System.out.println("    generated methods compiled: " + generated + ", of which by C2: " + generatedC2
+                    + ", largest: " + largest + " bytes");
+        }
+    }
+
+    /** Runs in the fresh JVM: a warm-up, then the timed run, whose result goes on a line of its own. */
+    public static class Child {
+        public static void main(String[] args) throws Exception
+        {
+            long seconds = Long.parseLong(args[0]);
+            Random random = new Random(42);
+            int n = 1 << 20;
+            float[] lats = new float[n];
+            float[] lngs = new float[n];
+            for (int i=0; i < n; i++) {
+                lats[i] = (float) (random.nextDouble() * 180 - 90);
+                lngs[i] = (float) (random.nextDouble() * 360 - 180);
+            }
+            run(lats, lngs, seconds * 1000000000L / 2);
+            long lookups = run(lats, lngs, seconds * 1000000000L);
+            System.out.println("RESULT " + lookups / seconds);
+        }
+
+        private static long run(float[] lats, float[] lngs, long nanos)
+        {
+            long start = System.nanoTime();
+            long lookups = 0;
+            int sink = 0;
+            while (System.nanoTime() - start < nanos) {
+                for (int i=0; i < lats.length; i++)
+                    sink += lookup(lats[i], lngs[i]);
+                lookups += lats.length;
+            }
+            if (sink == 42)
+                System.out.println();
+            return lookups * nanos / (System.nanoTime() - start);
+        }
+
+        private static int lookup(float lat, float lng)
+        {
+            return TimezoneMapper.latLngToTimezoneString(lat, lng).length();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class MultiReleaseTest {
+    @Test
+    public void usesTheRightClasses() {
+        // From the jar, the newest overlay the JVM can use; from target/classes, always the baseline:
+        String java = System.getProperty("java.specification.version");
+        int runtime = java.startsWith("1.") ? 8 : Integer.parseInt(java);
+        boolean fromJar = MultiRelease.class.getResource("MultiRelease.class").getProtocol().equals("jar");
+        int expected = ! fromJar ? 8 : runtime >= 21 ? 21 : runtime >= 17 ? 17 : 8;
+        assertEquals(expected, MultiRelease.version());
+
+        // The run against the jar is told which overlay the build made for its JDK:
+        String built = System.getProperty("multiRelease.expected");
+        if (built != null) {
+            assertTrue("Not running from the jar", fromJar);
+            assertEquals(Integer.parseInt(built), MultiRelease.version());
+        }
+
+        // The vector kernel is one of the overlays, and is used when the JVM has the incubator module:
+        boolean vectors;
+        try {
+            Class.forName("jdk.incubator.vector.FloatVector");
+            vectors = true;
+        }
+        catch (ClassNotFoundException e) {
+            vectors = false;
+        }
+        String kernel = fromJar && runtime >= 17 && vectors && ! "scalar".equals(System.getProperty("com.skedgo.converter.TimezoneBatch.kernel"))
+                ? "VectorPolygonKernel" : "PolygonKernel";
+        assertEquals(kernel, PolygonKernel.INSTANCE.getClass().getSimpleName());
+
+        // And mustn't change any answers, with a partial vector at the end of each group:
+        Random random = new Random(3);
+        PolygonKernel scalar = new PolygonKernel();
+        float[] ys = new float[29], xs = new float[29];
+        boolean[] expectedInside = new boolean[29], inside = new boolean[29];
+        for (int poly=0; poly < 300; poly++) {
+            float[] pts = TimezoneMapper.polygonPoints(poly);
+            for (int p=0; p < ys.length; p++) {
+                int k = 2 * random.nextInt(pts.length / 2);
+                ys[p] = pts[k] + (float) (random.nextGaussian() * 0.05);
+                xs[p] = pts[k+1] + (float) (random.nextGaussian() * 0.05);
+            }
+            scalar.contains(poly, ys, xs, ys.length, expectedInside);
+            PolygonKernel.INSTANCE.contains(poly, ys, xs, ys.length, inside);
+            assertArrayEquals(kernel + " on polygon " + poly, expectedInside, inside);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class PolygonContainsTest {
+    /**
+     * The polygons whose contains() only looks at one latitude band's edges, against looking at every edge, on
+     * points close to their vertices, where a band boundary or an edge is most likely to be near, and on points
+     * exactly level with the vertices.
+     */
+    @Test
+    public void bandsAgreeWithEveryEdge() {
+        Random random = new Random(8);
+        int banded = 0;
+        for (int poly = polygons().nextSetBit(0); poly >= 0; poly = polygons().nextSetBit(poly + 1)) {
+            if (! TimezoneMapper.polygonIsBanded(poly))
+                continue;
+            banded++;
+            float[] pts = TimezoneMapper.polygonPoints(poly);
+            float[] slopes = TimezoneMapper.polygonSlopes(poly);
+            for (int i=0; i < pts.length; i += 2) {
+                for (int k=0; k < 4; k++) {
+                    double scale = k < 2 ? 0.001 : 0.05;
+                    float lat = k == 0 ? pts[i] : pts[i] + (float) (random.nextGaussian() * scale);
+                    float lng = pts[i+1] + (float) (random.nextGaussian() * scale);
+                    assertEquals("polygon " + poly + " at " + lat + "," + lng, everyEdge(pts, slopes, lat, lng),
+                            TimezoneMapper.polygonContains(poly, lat, lng));
+                }
+            }
+        }
+        assertTrue(banded > 100);
+    }
+
+    /**
+     * Every polygon's contains(), with its bounds check and the slopes it multiplies by, against the division that it
+     * used to do for each edge, on points around the polygon's box and close to its vertices.
+     */
+    @Test
+    public void agreesWithDividing() {
+        Random random = new Random(15);
+        int inside = 0, tested = 0;
+        for (int poly = polygons().nextSetBit(0); poly >= 0; poly = polygons().nextSetBit(poly + 1)) {
+            float[] pts = TimezoneMapper.polygonPoints(poly);
+            float minLat = pts[0], maxLat = pts[0], minLng = pts[1], maxLng = pts[1];
+            for (int i=2; i < pts.length; i += 2) {
+                minLat = Math.min(minLat, pts[i]);
+                maxLat = Math.max(maxLat, pts[i]);
+                minLng = Math.min(minLng, pts[i+1]);
+                maxLng = Math.max(maxLng, pts[i+1]);
+            }
+            for (int k=0; k < 40; k++) {
+                float lat, lng;
+                if (k % 2 == 0) {
+                    // Anywhere in the box, and a little way round it:
+                    lat = minLat + (float) ((random.nextDouble() * 1.2 - 0.1) * (maxLat - minLat));
+                    lng = minLng + (float) ((random.nextDouble() * 1.2 - 0.1) * (maxLng - minLng));
+                }
+                else {
+                    int i = 2 * random.nextInt(pts.length / 2);
+                    lat = pts[i] + (float) (random.nextGaussian() * 0.01);
+                    lng = pts[i+1] + (float) (random.nextGaussian() * 0.01);
+                }
+                boolean expected = dividing(pts, lat, lng);
+                assertEquals("polygon " + poly + " at " + lat + "," + lng, expected, TimezoneMapper.polygonContains(poly, lat, lng));
+                if (expected) inside++;
+                tested++;
+            }
+        }
+        assertTrue(inside > tested / 10);
+    }
+
+    /** TzPolygon.contains() as it was before it kept its bounds and slopes, without the bands, which don't change the answer. */
+    static boolean dividing(float[] pts, float testy, float testx)
+    {
+        boolean inside = false;
+        int n = pts.length;
+        float yj = pts[n-2];
+        float xj = pts[n-1];
+        for (int i=0; i < n; ) {
+            float yi = pts[i++];
+            float xi = pts[i++];
+            if ( ((yi>testy) != (yj>testy)) && (testx < (xj-xi) * (testy-yi) / (yj-yi) + xi - 0.0001f))
+                inside = !inside;
+            xj = xi;
+            yj = yi;
+        }
+        return inside;
+    }
+
+    /** The bounds check and the ray casting of TzPolygon.contains(), without the bands. */
+    static boolean everyEdge(float[] pts, float[] slopes, float testy, float testx)
+    {
+        float minLat = pts[0], maxLat = pts[0], minLng = pts[1], maxLng = pts[1];
+        for (int i=2; i < pts.length; i += 2) {
+            minLat = Math.min(minLat, pts[i]);
+            maxLat = Math.max(maxLat, pts[i]);
+            minLng = Math.min(minLng, pts[i+1]);
+            maxLng = Math.max(maxLng, pts[i+1]);
+        }
+        if (! (testy >= minLat && testy < maxLat && testx < maxLng && testx >= minLng - 0.001f))
+            return false;
+        boolean inside = false;
+        int n = pts.length;
+        float yj = pts[n-2];
+        for (int i=0; i < n; i += 2) {
+            float yi = pts[i];
+            if ( ((yi>testy) != (yj>testy)) && (testx < slopes[i>>1] * (testy-yi) + pts[i+1] - 0.0001f))
+                inside = !inside;
+            yj = yi;
+        }
+        return inside;
+    }
+
+    private static BitSet polygons;
+
+    /** Every polygon that a leaf of the tree refers to. */
+    static BitSet polygons()
+    {
+        if (polygons == null) {
+            BitSet result = new BitSet();
+            int[] nodes = TimezoneMapper.Tree.nodes, leaves = TimezoneMapper.Tree.leaves;
+            for (int word : nodes) {
+                if ((word & 3) == 3) {
+                    int leaf = word >>> 2;
+                    for (int i=0; i < leaves[leaf]; i++)
+                        result.set(leaves[leaf + 2 + 2*i]);
+                }
+            }
+            polygons = result;
+        }
+        return polygons;
+    }
+}
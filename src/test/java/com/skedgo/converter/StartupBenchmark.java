@@ -0,0 +1,191 @@
+package com.skedgo.converter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+
+
+/**
+ * Measures what TimezoneMapper costs a process that has only just started: the time to load and
+ * initialise the class and to answer the first lookups, the heap it retains, and how much it adds
+ * to the jar.  Each measurement is done in a fresh JVM, because class initialisation only ever
+ * happens once per JVM.
+ *
+ * The timings compare creating the polygons lazily (the default) against creating them all up front
+ * with preloadPolygons().  The footprint is the heap retained after a full GC at each stage: the class
+ * itself (timezoneStrings and the caches), all of the polygons, and the arrays of the tree engine.
+ *
+ * Run with:  java -cp target/classes:target/test-classes com.skedgo.converter.StartupBenchmark [runs]
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception
+    {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        for (String mode : new String[] { "lazy", "eager" }) {
+            List<long[]> results = new ArrayList<>();
+            for (int i=0; i < runs; i++)
+                results.add(runChild(mode));
+            System.out.println(mode + ":  (medians of " + runs + " fresh JVMs)");
+            System.out.println("    class load:              " + micros(median(results, 0)) + " us");
+            System.out.println((mode.equals("eager") ? "    class init + preload:    " : "    class init (<clinit>):   ")
+                    + micros(median(results, 1)) + " us");
+            System.out.println("    first lookup (Sydney):   " + micros(median(results, 2)) + " us");
+            System.out.println("    second lookup (Chicago): " + micros(median(results, 3)) + " us");
+            System.out.println("    time to first answer:    " + micros(median(results, 4)) + " us");
+        }
+
+        List<long[]> results = new ArrayList<>();
+        for (int i=0; i < runs; i++)
+            results.add(runChild("footprint"));
+        System.out.println("retained heap:  (medians of " + runs + " fresh JVMs)");
+        System.out.println("    after class init:        " + median(results, 0) / 1024 + " KB");
+        System.out.println("    all of the polygons:     " + median(results, 1) / 1024 + " KB");
+        System.out.println("    the tree engine arrays:  " + median(results, 2) / 1024 + " KB");
+
+        long[] sizes = classFileSizes();
+        System.out.println("class files:  TimezoneMapper and its nested classes");
+        System.out.println("    uncompressed:            " + sizes[0] / 1024 + " KB");
+        System.out.println("    in the jar:              " + sizes[1] / 1024 + " KB");
+    }
+
+    private static long[] runChild(String mode) throws IOException, InterruptedException
+    {
+        String java = System.getProperty("java.home") + "/bin/java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                StartupBenchmark.Child.class.getName(), mode)
+                .redirectErrorStream(true)
+                .start();
+        String line;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            line = reader.readLine();
+        }
+        if (process.waitFor() != 0 || line == null)
+            throw new IOException("Child JVM failed: " + line);
+        String[] fields = line.trim().split(" ");
+        long[] result = new long[fields.length];
+        for (int i=0; i < fields.length; i++)
+            result[i] = Long.parseLong(fields[i]);
+        return result;
+    }
+
+    /** The total size of TimezoneMapper*.class, both as is and as compressed in a jar. */
+    private static long[] classFileSizes() throws IOException
+    {
+        long raw = 0, compressed = 0;
+        URL url = TimezoneMapper.class.getResource("TimezoneMapper.class");
+        if (url.getProtocol().equals("jar")) {
+            try (JarFile jar = ((JarURLConnection) url.openConnection()).getJarFile()) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (isMapperClass(entry.getName().substring(entry.getName().lastIndexOf('/') + 1))) {
+                        raw += entry.getSize();
+                        compressed += entry.getCompressedSize();
+                    }
+                }
+            }
+        }
+        else {
+            // Not in a jar yet, so compress the class files the way the jar tool would:
+            File[] files = new File(url.getPath()).getParentFile().listFiles();
+            for (File file : files) {
+                if (! isMapperClass(file.getName()))
+                    continue;
+                byte[] bytes = Files.readAllBytes(file.toPath());
+                raw += bytes.length;
+                compressed += deflatedSize(bytes);
+            }
+        }
+        return new long[] { raw, compressed };
+    }
+
+    private static boolean isMapperClass(String name)
+    {
+        return name.equals("TimezoneMapper.class") || (name.startsWith("TimezoneMapper$") && name.endsWith(".class"));
+    }
+
+    private static long deflatedSize(byte[] bytes)
+    {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] buffer = new byte[65536];
+        long size = 0;
+        while (! deflater.finished())
+            size += deflater.deflate(buffer);
+        deflater.end();
+        return size;
+    }
+
+    private static long median(List<long[]> results, int field)
+    {
+        long[] values = new long[results.size()];
+        for (int i=0; i < values.length; i++)
+            values[i] = results.get(i)[field];
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private static long micros(long nanos)
+    {
+        return nanos / 1000;
+    }
+
+    /** Runs in the fresh JVM and prints its measurements on a single line. */
+    public static class Child {
+        public static void main(String[] args) throws Exception
+        {
+            if (args[0].equals("footprint")) {
+                footprint();
+                return;
+            }
+            boolean eager = args[0].equals("eager");
+            long t0 = System.nanoTime();
+            Class<?> c = Class.forName("com.skedgo.converter.TimezoneMapper", false, Child.class.getClassLoader());
+            long t1 = System.nanoTime();
+            Class.forName(c.getName(), true, c.getClassLoader());
+            if (eager)
+                TimezoneMapper.preloadPolygons();
+            long t2 = System.nanoTime();
+            TimezoneMapper.latLngToTimezoneString(-33.8688, 151.2093);
+            long t3 = System.nanoTime();
+            TimezoneMapper.latLngToTimezoneString(41.8788764, -87.6359149);
+            long t4 = System.nanoTime();
+            System.out.println((t1 - t0) + " " + (t2 - t1) + " " + (t3 - t2) + " " + (t4 - t3) + " " + (t3 - t0));
+        }
+
+        private static void footprint() throws Exception
+        {
+            // Load what the measurements themselves use first, so that it isn't counted:
+            usedHeap();
+            long before = usedHeap();
+            Class.forName("com.skedgo.converter.TimezoneMapper");
+            long afterInit = usedHeap();
+            TimezoneMapper.preloadPolygons();
+            long afterPolygons = usedHeap();
+            TimezoneMapper.getTzIntFromTree(0, 0);
+            long afterTree = usedHeap();
+            System.out.println((afterInit - before) + " " + (afterPolygons - afterInit) + " " + (afterTree - afterPolygons));
+        }
+
+        private static long usedHeap()
+        {
+            for (int i=0; i < 3; i++)
+                System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+}
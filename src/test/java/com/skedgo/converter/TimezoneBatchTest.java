@@ -0,0 +1,56 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class TimezoneBatchTest {
+    @Test
+    public void agreesWithMapper() {
+        Random random = new Random(42);
+        double[] lats = new double[50000], lngs = new double[50000];
+        for (int i=0; i < lats.length; i++) {
+            // Half of them in Europe, where there are plenty of polygons:
+            boolean europe = i % 2 == 0;
+            lats[i] = europe ? 36 + random.nextDouble() * 30 : random.nextDouble() * 180 - 90;
+            lngs[i] = europe ? -10 + random.nextDouble() * 40 : random.nextDouble() * 360 - 180;
+        }
+        short[] expected = new short[lats.length];
+        for (int i=0; i < lats.length; i++)
+            expected[i] = (short) TimezoneMapper.lookup((float) lats[i], (float) lngs[i]);
+        short[] actual = new short[lats.length];
+        TimezoneBatch.latLngToTimezoneIndices(lats, lngs, 0, lats.length, actual);
+        assertArrayEquals(expected, actual);
+
+        // Only the range asked for is set:
+        short[] part = new short[lats.length];
+        TimezoneBatch.latLngToTimezoneIndices(lats, lngs, 100, 1000, part);
+        for (int i=0; i < lats.length; i++)
+            assertEquals(i >= 100 && i < 1100 ? expected[i] : 0, part[i]);
+    }
+
+    @Test
+    public void kernelsAgree() {
+        // Points around each of the first few hundred polygons, against both the scalar kernel and whichever one is in use:
+        Random random = new Random(7);
+        PolygonKernel scalar = new PolygonKernel();
+        float[] ys = new float[37], xs = new float[37];
+        boolean[] expected = new boolean[37], actual = new boolean[37];
+        for (int poly=0; poly < 500; poly++) {
+            float[] pts = TimezoneMapper.polygonPoints(poly);
+            for (int p=0; p < ys.length; p++) {
+                int k = 2 * random.nextInt(pts.length / 2);
+                ys[p] = pts[k] + (float) (random.nextGaussian() * 0.05);
+                xs[p] = pts[k+1] + (float) (random.nextGaussian() * 0.05);
+            }
+            scalar.contains(poly, ys, xs, ys.length, expected);
+            PolygonKernel.INSTANCE.contains(poly, ys, xs, ys.length, actual);
+            assertArrayEquals(PolygonKernel.INSTANCE.getClass().getSimpleName() + " on polygon " + poly, expected, actual);
+        }
+    }
+
+}
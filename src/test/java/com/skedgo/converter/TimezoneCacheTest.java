@@ -0,0 +1,36 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class TimezoneCacheTest {
+    @Test
+    public void agreesWithMapperAndCounts() {
+        TimezoneCache cache = new TimezoneCache(0.0001, 1024);
+        assertEquals("America/Chicago", cache.latLngToTimezoneString(41.8788764, -87.6359149));
+        assertEquals("America/Chicago", cache.latLngToTimezoneString(41.87888, -87.63592));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // Far more places than fit, to exercise the eviction:
+        Random random = new Random(42);
+        double[][] places = new double[5000][];
+        for (int i=0; i < places.length; i++)
+            places[i] = new double[] { random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180 };
+        for (int round=0; round < 3; round++) {
+            for (double[] place : places)
+                assertEquals(TimezoneMapper.latLngToTimezoneString(place[0], place[1]), cache.latLngToTimezoneString(place[0], place[1]));
+        }
+        assertEquals(3 * places.length + 2, cache.hits() + cache.misses());
+
+        cache.clear();
+        assertEquals(0, cache.hits() + cache.misses());
+        assertEquals("Europe/Paris", cache.latLngToTimezoneString(42.75676, -0.092723));
+        assertEquals(1, cache.misses());
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class TimezoneIndexTest {
+    @Test
+    public void agreesWithGeneratedSource() throws Exception {
+        TimezoneIndex index = TimezoneIndex.fromResource(TimezoneIndex.DEFAULT_RESOURCE);
+        assertEquals("Europe/Helsinki", index.latLngToTimezoneString(65.012197, 25.471152));
+        assertEquals("America/Chicago", index.latLngToTimezoneString(41.8788764, -87.6359149));
+        assertEquals("Europe/Paris", index.latLngToTimezoneString(42.75676, -0.092723));
+        for (double lat = -89.5; lat < 90; lat += 0.5)
+            for (double lng = -179.5; lng < 180; lng += 0.5)
+                assertEquals(TimezoneMapper.latLngToTimezoneString(lat, lng), index.latLngToTimezoneString(lat, lng));
+    }
+
+}
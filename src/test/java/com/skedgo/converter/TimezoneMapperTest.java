@@ -1,9 +1,24 @@
 package com.skedgo.converter;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 
 public class TimezoneMapperTest {
@@ -14,4 +29,77 @@ public class TimezoneMapperTest {
         assertEquals(TimezoneMapper.latLngToTimezoneString(42.75676, -0.092723), "Europe/Paris");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void batch() {
+        double[] lats = { 0, 65.012197, 41.8788764, 42.75676, 0 };
+        double[] lngs = { 0, 25.471152, -87.6359149, -0.092723, 0 };
+        short[] out = new short[5];
+        TimezoneMapper.latLngToTimezoneIndices(lats, lngs, 1, 3, out);
+        assertEquals(0, out[0]);
+        assertEquals("Europe/Helsinki", TimezoneMapper.timezoneIndexToString(out[1]));
+        assertEquals("America/Chicago", TimezoneMapper.timezoneIndexToString(out[2]));
+        assertEquals("Europe/Paris", TimezoneMapper.timezoneIndexToString(out[3]));
+        assertEquals(0, out[4]);
+    }
+
+    /** The README tells people to copy TimezoneMapper.java into their project, so it mustn't need the other classes. */
+    @Test
+    public void compilesOnItsOwn() throws Exception {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(javac);
+        Path dir = Files.createTempDirectory("alone");
+        try {
+            Path source = dir.resolve("com/skedgo/converter/TimezoneMapper.java");
+            Files.createDirectories(source.getParent());
+            Files.copy(Paths.get("src/main/java/com/skedgo/converter/TimezoneMapper.java"), source);
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            int status = javac.run(null, null, errors, "-nowarn", "-encoding", "UTF-8", "-sourcepath", "", "-classpath", dir.toString(), "-d", dir.toString(), source.toString());
+            assertEquals(errors.toString(), 0, status);
+        }
+        finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void zoneIdsAreResolvedOnce() {
+        ZoneId helsinki = TimezoneMapper.latLngToZoneId(65.012197, 25.471152);
+        assertEquals(ZoneId.of("Europe/Helsinki"), helsinki);
+        assertSame(helsinki, TimezoneMapper.latLngToZoneId(60.169857, 24.938379));
+        TimeZone chicago = TimezoneMapper.latLngToTimeZone(41.8788764, -87.6359149);
+        assertEquals("America/Chicago", chicago.getID());
+        assertSame(chicago, TimezoneMapper.latLngToTimeZone(41.8788764, -87.6359149));
+    }
+
+    @Test
+    public void gridAgreesWithTree() {
+        try {
+            double hitRate = TimezoneMapper.useGrid(0.25);
+            assertTrue(hitRate > 0.25);
+            Random random = new Random(42);
+            for (int i=0; i < 100000; i++) {
+                float lat = (float) (random.nextDouble() * 180 - 90);
+                float lng = (float) (random.nextDouble() * 360 - 180);
+                String expected = TimezoneMapper.timezoneIndexToString(TimezoneMapper.getTzIntFromTree(lat, lng));
+                assertEquals(lat + "," + lng, expected, TimezoneMapper.latLngToTimezoneString(lat, lng));
+            }
+        }
+        finally {
+            TimezoneMapper.useGrid(0);
+        }
+    }
+
+    @Test
+    public void treeEngineAgreesWithGeneratedCode() {
+        for (double lat = -90; lat <= 90; lat += 0.5) {
+            for (double lng = -180; lng <= 180; lng += 0.5) {
+                String expected = TimezoneMapper.latLngToTimezoneString(lat, lng);
+                int tz = TimezoneMapper.getTzIntFromTree((float) lat, (float) lng);
+                assertEquals(lat + "," + lng, expected, TimezoneMapper.timezoneIndexToString(tz));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TimezoneProximityTest {
+    @Test
+    public void nearestAgreesWithMapperWhereKnown() {
+        assertEquals("America/Chicago", TimezoneProximity.nearestTimezoneString(41.8788764, -87.6359149, 5000));
+        assertEquals("America/Chicago", TimezoneProximity.nearestTimezoneString(41.8788764, -87.6359149, 0));
+
+        // The search on its own finds the zone the point is in, at a distance of 0:
+        Random random = new Random(42);
+        for (int i=0; i < 20000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+            assertEquals(lat + "," + lng, TimezoneMapper.lookup((float) lat, (float) lng), TimezoneProximity.searchNearest(lat, lng, 1000));
+        }
+    }
+
+    @Test
+    public void radiusFindsEveryZoneInsideIt() {
+        int chicago = TimezoneMapper.lookup(41.8788764f, -87.6359149f);
+        assertArrayEquals(new int[] { chicago }, TimezoneProximity.timezonesWithin(41.8788764, -87.6359149, 100));
+        // Michigan City, Indiana is 10km or so from the Michigan state line, which is on Eastern time:
+        int[] michiganCity = TimezoneProximity.timezonesWithin(41.7075, -86.8950, 30000);
+        assertTrue(Arrays.toString(michiganCity), michiganCity.length >= 2);
+
+        // Points inside the circle must have their zones in the result:
+        Random random = new Random(42);
+        double metres = 20000;
+        for (int i=0; i < 2000; i++) {
+            double lat = random.nextDouble() * 160 - 80;
+            double lng = random.nextDouble() * 360 - 180;
+            int[] zones = TimezoneProximity.timezonesWithin(lat, lng, metres);
+            for (int j=0; j < 20; j++) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                double r = random.nextDouble() * 0.9 * metres / TimezoneProximity.METRES_PER_DEGREE;
+                double y = lat + r * Math.sin(angle);
+                double x = lng + r * Math.cos(angle) / Math.cos(Math.toRadians(lat));
+                x = x >= 180 ? x - 360 : x < -180 ? x + 360 : x;
+                int tz = TimezoneMapper.lookup((float) y, (float) x);
+                assertTrue(lat + "," + lng + " " + Arrays.toString(zones) + " " + tz,
+                        tz == 0 || Arrays.binarySearch(zones, tz) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void radiusLeavesOutZonesOutsideIt() {
+        // In a leaf with polygons, inside one of them, which isn't the leaf's default zone:
+        int rosario = TimezoneMapper.lookup(-32.997f, -60.222f);
+        assertArrayEquals(new int[] { rosario }, TimezoneProximity.timezonesWithin(-32.997, -60.222, 0));
+
+        // With no radius, the only zone is the one the point is in:
+        Random random = new Random(42);
+        for (int i=0; i < 20000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+            int tz = TimezoneMapper.lookup((float) lat, (float) lng);
+            assertArrayEquals(lat + "," + lng, tz == 0 ? new int[0] : new int[] { tz }, TimezoneProximity.timezonesWithin(lat, lng, 0));
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TimezoneRegionTest {
+    @Test
+    public void answerHoldsThroughoutTheRegion() {
+        TimezoneRegion chicago = TimezoneRegion.lookupWithRegion(41.8788764, -87.6359149);
+        assertEquals("America/Chicago", chicago.tzId);
+        assertTrue(chicago.contains(41.8788764, -87.6359149));
+
+        Random random = new Random(42);
+        for (int i=0; i < 20000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+            TimezoneRegion region = TimezoneRegion.lookupWithRegion(lat, lng);
+            assertEquals(TimezoneMapper.latLngToTimezoneString(lat, lng), region.tzId);
+            if (region.isEmpty())
+                continue;
+            assertTrue(region.toString(), region.contains(lat, lng));
+            for (int j=0; j < 20; j++) {
+                double y = region.latFrom + random.nextDouble() * (region.latTo - region.latFrom);
+                double x = region.lngFrom + random.nextDouble() * (region.lngTo - region.lngFrom);
+                assertEquals(region + " at " + y + "," + x, region.tzId, TimezoneMapper.latLngToTimezoneString(y, x));
+            }
+        }
+    }
+
+}
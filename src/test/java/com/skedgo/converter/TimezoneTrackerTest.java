@@ -0,0 +1,29 @@
+package com.skedgo.converter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TimezoneTrackerTest {
+    @Test
+    public void followsATrace() {
+        // A drive from Chicago towards Detroit, wandering a little, through the Central/Eastern boundary:
+        TimezoneTracker tracker = new TimezoneTracker();
+        Random random = new Random(42);
+        double lat = 41.8788764, lng = -87.6359149;
+        int points = 0;
+        while (lng < -83.0458) {
+            assertEquals(lat + "," + lng, TimezoneMapper.latLngToTimezoneString(lat, lng), tracker.latLngToTimezoneString(lat, lng));
+            lat += (random.nextDouble() - 0.5) * 0.002;
+            lng += random.nextDouble() * 0.002;
+            points++;
+        }
+        assertEquals("America/Detroit", tracker.latLngToTimezoneString(42.3314, -83.0458));
+        assertTrue(tracker.treeWalks() + " walks for " + points + " points", tracker.treeWalks() * 20 < points);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.skedgo.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Measures clipping polygons to the two halves of their bounding box, as the KD-tree's splits do: with
+ * Polygon.clip(), against intersecting with a polygon of the box's 4 corners, as intersection() used to.
+ * It also checks the two agree, on random points in each half; they can differ right next to the line, since
+ * the general way merges points within about 100m of being in line.
+ *
+ * The polygons are SweepBenchmark's synthetic ones, and the pivots random.
+ *
+ * Run with:  java -cp target/classes:target/test-classes com.skedgo.generator.ClipBenchmark [points] [pivots]
+ */
+public class ClipBenchmark {
+
+    public static void main(String[] args)
+    {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        Random random = new Random(42);
+        for (String kind : new String[] { "coast", "strip" }) {
+            Polygon polygon = kind.equals("coast") ? SweepBenchmark.coast(random, n) : SweepBenchmark.strip(random, n);
+            polygon.ensureIsClockwise();
+            List<BoundingBox> halves = new ArrayList<>();
+            for (int i=0; i < count; i++) {
+                BoundingBox box = polygon.box;
+                if (random.nextBoolean()) {
+                    double pivot = box.lat1 + (0.1 + 0.8 * random.nextDouble()) * (box.lat2 - box.lat1);
+                    halves.add(new BoundingBox(box.lat1, pivot, box.lng1, box.lng2));
+                    halves.add(new BoundingBox(pivot, box.lat2, box.lng1, box.lng2));
+                }
+                else {
+                    double pivot = box.lng1 + (0.1 + 0.8 * random.nextDouble()) * (box.lng2 - box.lng1);
+                    halves.add(new BoundingBox(box.lat1, box.lat2, box.lng1, pivot));
+                    halves.add(new BoundingBox(box.lat1, box.lat2, pivot, box.lng2));
+                }
+            }
+
+            List<List<BoundingBoxOrPolygon>> before = new ArrayList<>(), now = new ArrayList<>();
+            for (String way : new String[] { "intersecting with the corners", "clip" }) {
+                for (int round = 0; round < 5; round++) {
+                    List<List<BoundingBoxOrPolygon>> results = way.equals("clip") ? now : before;
+                    results.clear();
+                    long start = System.nanoTime();
+                    for (BoundingBox box : halves)
+                        results.add(way.equals("clip") ? polygon.clip(box) : polygon.intersection(corners(box)));
+                    System.out.printf("%s, %d points, %s, round %d: %.3f ms per half%n", kind, polygon.points.size(), way, round,
+                            (System.nanoTime() - start) / 1e6 / halves.size());
+                }
+            }
+
+            int parts = 0, differ = 0, tested = 0;
+            for (int i=0; i < halves.size(); i++) {
+                BoundingBox box = halves.get(i);
+                parts += now.get(i).size();
+                for (int k=0; k < 1000; k++) {
+                    LatLong pt = new LatLong(box.lat1 + random.nextDouble() * (box.lat2 - box.lat1),
+                            box.lng1 + random.nextDouble() * (box.lng2 - box.lng1));
+                    tested++;
+                    if (contains(before.get(i), pt) != contains(now.get(i), pt))
+                        differ++;
+                }
+            }
+            System.out.printf("%s: %d parts from %d halves; %d of %d points inside one but not the other%n",
+                    kind, parts, halves.size(), differ, tested);
+        }
+    }
+
+    private static Polygon corners(BoundingBox box)
+    {
+        Polygon polygon = new Polygon();
+        polygon.addPoint(box.lat1, box.lng1);
+        polygon.addPoint(box.lat2, box.lng1);
+        polygon.addPoint(box.lat2, box.lng2);
+        polygon.addPoint(box.lat1, box.lng2);
+        return polygon;
+    }
+
+    private static boolean contains(List<BoundingBoxOrPolygon> parts, LatLong pt)
+    {
+        if (parts != null)
+            for (BoundingBoxOrPolygon part : parts)
+                if (((Polygon) part).contains(pt))
+                    return true;
+        return false;
+    }
+}
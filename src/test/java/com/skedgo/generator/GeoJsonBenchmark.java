@@ -0,0 +1,135 @@
+package com.skedgo.generator;
+
+import com.skedgo.generator.parsing.GeoJsonReader;
+import com.skedgo.generator.parsing.JSONObject;
+import com.skedgo.generator.parsing.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+
+
+/**
+ * Measures reading a large GeoJSON FeatureCollection of timezones: the wall time and peak heap of streaming it
+ * with GeoJsonReader, against building a JSONObject of the whole document, as readPolygons() used to with its
+ * json.  The input is synthetic: features of MultiPolygons, each part a wobbly circle of many points with a hole
+ * in it, written to a temporary file of about the given size.  Each way of reading it runs in a fresh JVM, so
+ * that the peaks don't mix; the peak is the sum of the heap pools' peaks, under the serial collector.
+ *
+ * Run with:  java -cp target/classes:target/test-classes com.skedgo.generator.GeoJsonBenchmark [MB] [max heap]
+ */
+public class GeoJsonBenchmark {
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length > 0 && args[0].equals("child")) {
+            child(args[1], args[2]);
+            return;
+        }
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String maxHeap = args.length > 1 ? args[1] : "4g";
+        File file = File.createTempFile("timezones", ".geojson");
+        file.deleteOnExit();
+        long start = System.nanoTime();
+        long points = write(file, megabytes * 1000000L);
+        System.out.printf("Wrote %d MB, %d points, in %d ms%n", file.length() / 1000000, points, (System.nanoTime() - start) / 1000000);
+
+        for (String mode : new String[] { "stream", "document" }) {
+            Process process = new ProcessBuilder(System.getProperty("java.home") + "/bin/java", "-Xmx" + maxHeap, "-XX:+UseSerialGC",
+                    "-cp", System.getProperty("java.class.path"), GeoJsonBenchmark.class.getName(), "child", mode, file.getPath())
+                    .redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                for (String line; (line = reader.readLine()) != null; )
+                    System.out.println(line);
+            }
+            process.waitFor();
+        }
+    }
+
+    private static void child(String mode, String filename) throws Exception
+    {
+        long start = System.nanoTime();
+        long rings = 0, points = 0;
+        try {
+            if (mode.equals("stream")) {
+                try (GeoJsonReader reader = new GeoJsonReader(new BufferedReader(new FileReader(filename), 1 << 16))) {
+                    while (reader.next()) {
+                        rings++;
+                        points += reader.size;
+                    }
+                }
+            }
+            else {
+                JSONObject json = new JSONObject(new JSONTokener(new BufferedReader(new FileReader(filename), 1 << 16)));
+                rings = json.getJSONArray("features").length();
+            }
+        }
+        catch (OutOfMemoryError e) {
+            System.out.printf("%-8s: out of memory after %d ms%n", mode, (System.nanoTime() - start) / 1000000);
+            return;
+        }
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        System.out.printf("%-8s: %d ms, peak heap %d MB  (%s)%n", mode, (System.nanoTime() - start) / 1000000, peak / 1000000,
+                mode.equals("stream") ? rings + " rings, " + points + " points" : rings + " features");
+    }
+
+    /** Writes about 'bytes' of features, giving the number of points. */
+    private static long write(File file, long bytes) throws IOException
+    {
+        Random random = new Random(42);
+        long points = 0;
+        try (Writer writer = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            writer.write("{\"type\":\"FeatureCollection\",\"features\":[\n");
+            StringBuilder sb = new StringBuilder();
+            for (int feature = 0; file.length() + sb.length() < bytes; feature++) {
+                if (feature > 0)
+                    sb.append(",\n");
+                sb.append("{\"type\":\"Feature\",\"properties\":{\"tzid\":\"Zone/").append(feature % 400)
+                  .append("\"},\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[");
+                int parts = 1 + random.nextInt(4);
+                for (int part = 0; part < parts; part++) {
+                    double lat = random.nextDouble() * 160 - 80, lng = random.nextDouble() * 350 - 175;
+                    sb.append(part > 0 ? ",[" : "[");
+                    points += ring(sb, lat, lng, 2, 500 + random.nextInt(5000));
+                    sb.append(',');
+                    points += ring(sb, lat, lng, 0.5, 50 + random.nextInt(500));
+                    sb.append(']');
+                }
+                sb.append("]}}");
+                writer.write(sb.toString());
+                writer.flush();
+                sb.setLength(0);
+            }
+            writer.write("\n]}\n");
+        }
+        return points;
+    }
+
+    /** A closed ring, anticlockwise, of n points plus the first repeated, around (lat,lng). */
+    private static int ring(StringBuilder sb, double lat, double lng, double radius, int n)
+    {
+        sb.append('[');
+        for (int i=0; i <= n; i++) {
+            double angle = 2 * Math.PI * (i % n) / n;
+            double r = radius * (0.9 + 0.1 * Math.sin(7 * angle));
+            if (i > 0)
+                sb.append(',');
+            sb.append('[').append(String.format("%.6f", lng + r * Math.cos(angle))).append(',')
+              .append(String.format("%.6f", lat + r * Math.sin(angle))).append(']');
+        }
+        sb.append(']');
+        return n + 1;
+    }
+}
@@ -0,0 +1,86 @@
+package com.skedgo.generator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class KdTreeParallelismTest {
+    private static final int CELLS = 12;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A 12 by 12 degree patchwork of ragged cells, with fewer timezones than cells, so that the tree has more than
+     * SEQUENTIAL_CUTOFF polygons to split at the top, and builds its halves in parallel.  On 1 thread and on 4 the
+     * output must be the same, byte for byte.
+     */
+    @Test
+    public void sameOutputOnAnyNumberOfThreads() throws Exception {
+        File input = folder.newFile("cells.json");
+        writeCells(input, new Random(18));
+        assertTrue(CELLS * CELLS > TimeZoneMapperConverter.SEQUENTIAL_CUTOFF);
+
+        String one = new File(folder.getRoot(), "one").getPath(), four = new File(folder.getRoot(), "four").getPath();
+        TimeZoneMapperConverter converter = new TimeZoneMapperConverter();
+        converter.parallelism = 1;
+        converter.go(input.getPath(), one);
+        converter = new TimeZoneMapperConverter();
+        converter.parallelism = 4;
+        converter.go(input.getPath(), four);
+
+        for (String extension : new String[] { ".bin", ".java", ".swift" }) {
+            byte[] expected = Files.readAllBytes(new File(one + extension).toPath());
+            assertTrue(expected.length > 0);
+            assertArrayEquals(extension, expected, Files.readAllBytes(new File(four + extension).toPath()));
+        }
+    }
+
+    /**
+     * Cell (i,j) has its corners at jittered grid points, and a jittered point in the middle of each side, which it
+     * shares with its neighbour, so that the cells fit together.  Each goes clockwise: north, east, south, west.
+     */
+    private static void writeCells(File file, Random random) throws Exception
+    {
+        int n = CELLS;
+        double[][][] corners = new double[n+1][n+1][], across = new double[n+1][n][], up = new double[n][n+1][];
+        for (int i=0; i <= n; i++) {
+            for (int j=0; j <= n; j++) {
+                corners[i][j] = new double[] { i + jitter(random, i, n), j + jitter(random, j, n) };
+                if (j < n)
+                    across[i][j] = new double[] { i + jitter(random, i, n), j + 0.5 + 0.3 * (random.nextDouble() - 0.5) };
+                if (i < n)
+                    up[i][j] = new double[] { i + 0.5 + 0.3 * (random.nextDouble() - 0.5), j + jitter(random, j, n) };
+            }
+        }
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("[");
+            for (int i=0; i < n; i++) {
+                for (int j=0; j < n; j++) {
+                    double[][] ring = { corners[i][j], up[i][j], corners[i+1][j], across[i+1][j], corners[i+1][j+1],
+                            up[i][j+1], corners[i][j+1], across[i][j] };
+                    writer.write((i + j > 0 ? ",\n" : "") + "{\"tz\":\"Zone/" + (i * n + j) % 23 + "\",\"polygon\":[");
+                    for (int k=0; k < ring.length; k++)
+                        writer.write((k > 0 ? "," : "") + "[" + ring[k][1] + "," + ring[k][0] + "]");
+                    writer.write("]}");
+                }
+            }
+            writer.write("]");
+        }
+    }
+
+    /** Up to a fifth of a degree either way, except on the patchwork's edges, which are kept straight. */
+    private static double jitter(Random random, int k, int n)
+    {
+        return k == 0 || k == n ? 0 : 0.4 * (random.nextDouble() - 0.5);
+    }
+}
@@ -0,0 +1,130 @@
+package com.skedgo.generator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class PolygonClipTest {
+    @Test
+    public void halfOfASquare() {
+        Polygon square = polygon(0,0, 10,0, 10,10, 0,10);
+        List<BoundingBoxOrPolygon> parts = square.clip(new BoundingBox(0, 5, 0, 10));
+        assertEquals(1, parts.size());
+        assertEquals(-50, area(parts), 1e-9);
+        assertEquals(5, parts.get(0).getBoundingBox().lat2, 0);
+
+        assertSame(square, square.intersection((BoundingBoxOrPolygon) new BoundingBox(-1, 11, -1, 11)).get(0));
+        assertNull(square.intersection((BoundingBoxOrPolygon) new BoundingBox(20, 30, 0, 10)));
+    }
+
+    @Test
+    public void goingOutAndBackInGivesSeparateParts() {
+        // A U, whose arms go above lat 5:
+        Polygon u = polygon(0,0, 10,0, 10,3, 2,3, 2,7, 10,7, 10,10, 0,10);
+        List<BoundingBoxOrPolygon> parts = u.clip(new BoundingBox(5, 10, 0, 10));
+        assertEquals(2, parts.size());
+        for (BoundingBoxOrPolygon part : parts)
+            assertTrue(part.asPolygon().isClockwise());
+        assertEquals(area(u.getPoints()) - area(u.clip(new BoundingBox(0, 5, 0, 10))), area(parts), 1e-9);
+    }
+
+    @Test
+    public void pointOnTheLineFromTheSideNotKept() {
+        // Teeth along the top, the middle one just reaching lat 5:
+        Polygon teeth = polygon(0,0, 8,5, 0,10, 5,15, 0,20, 8,25, 0,30);
+        List<BoundingBoxOrPolygon> parts = teeth.clip(new BoundingBox(5, 10, 0, 30));
+        assertEquals(2, parts.size());
+        assertEquals(2 * -(3 * 3.75 / 2), area(parts), 1e-9);
+
+        // A notch up from the bottom of a square, to a point on lat 5, so that the line is inside on both sides of it:
+        Polygon notched = polygon(0,0, 10,0, 10,10, 0,10, 0,6, 5,5, 0,4);
+        parts = notched.clip(new BoundingBox(5, 10, 0, 10));
+        assertEquals(1, parts.size());
+        assertEquals(-50, area(parts), 1e-9);
+        parts = notched.clip(new BoundingBox(0, 5, 0, 10));
+        assertEquals(1, parts.size());
+        assertEquals(-50 + 5, area(parts), 1e-9);
+    }
+
+    /** Stars with their points on a grid, cut where their points are, as the KD-tree does, so many are on the line. */
+    @Test
+    public void halvesAddUpToTheWhole() {
+        Random random = new Random(42);
+        for (int i=0; i < 500; i++) {
+            int n = 5 + random.nextInt(12);
+            Polygon star = new Polygon();
+            for (int k=0; k < n; k++) {
+                double angle = -2 * Math.PI * k / n;
+                double r = 10 + 40 * random.nextDouble();
+                star.addPoint(Math.round(r * Math.sin(angle)), Math.round(r * Math.cos(angle)));
+            }
+            star.cleanUp();
+            if (star.points.size() < 3 || star.hasSelfIntersection())
+                continue;
+            star.ensureIsClockwise();
+            String name = star.toString();
+
+            LatLong at = star.points.get(random.nextInt(star.points.size()));
+            boolean onLat = random.nextBoolean();
+            double pivot = onLat ? at.lat : at.lng;
+            BoundingBox box = star.box;
+            BoundingBox below = onLat ? new BoundingBox(box.lat1, pivot, box.lng1, box.lng2) : new BoundingBox(box.lat1, box.lat2, box.lng1, pivot);
+            BoundingBox above = onLat ? new BoundingBox(pivot, box.lat2, box.lng1, box.lng2) : new BoundingBox(box.lat1, box.lat2, pivot, box.lng2);
+            List<BoundingBoxOrPolygon> belowParts = star.clip(below), aboveParts = star.clip(above);
+            assertEquals(name, area(star.getPoints()), area(belowParts) + area(aboveParts), 1e-6);
+
+            for (BoundingBox half : new BoundingBox[] { below, above }) {
+                List<BoundingBoxOrPolygon> parts = half == below ? belowParts : aboveParts;
+                for (BoundingBoxOrPolygon part : parts) {
+                    assertTrue(part.asPolygon().isClockwise());
+                    assertTrue(half.contains(part.getBoundingBox().lat1, part.getBoundingBox().lng1));
+                    assertTrue(half.contains(part.getBoundingBox().lat2, part.getBoundingBox().lng2));
+                }
+                for (int k=0; k < 100; k++) {
+                    double lat = half.lat1 + random.nextDouble() * (half.lat2 - half.lat1);
+                    double lng = half.lng1 + random.nextDouble() * (half.lng2 - half.lng1);
+                    if (Math.abs((onLat ? lat : lng) - pivot) < 0.001)
+                        continue;
+                    boolean inPart = false;
+                    for (BoundingBoxOrPolygon part : parts)
+                        inPart |= part.asPolygon().contains(lat, lng);
+                    assertEquals(name + " at " + lat + "," + lng, star.contains(lat, lng), inPart);
+                }
+            }
+        }
+    }
+
+    private static Polygon polygon(double... latLngs)
+    {
+        Polygon polygon = new Polygon();
+        for (int i=0; i < latLngs.length; i += 2)
+            polygon.addPoint(latLngs[i], latLngs[i+1]);
+        assertTrue(polygon.isClockwise());
+        return polygon;
+    }
+
+    /** Negative for clockwise, with lng as x and lat as y. */
+    private static double area(List<?> pointsOrParts)
+    {
+        double sum = 0;
+        if (! pointsOrParts.isEmpty() && pointsOrParts.get(0) instanceof BoundingBoxOrPolygon) {
+            for (Object part : pointsOrParts)
+                sum += area(((BoundingBoxOrPolygon) part).asPolygon().getPoints());
+            return sum;
+        }
+        List<LatLong> points = new ArrayList<>();
+        for (Object pt : pointsOrParts)
+            points.add((LatLong) pt);
+        for (int i=0, j = points.size() - 1; i < points.size(); j = i++)
+            sum += (points.get(j).lng * points.get(i).lat - points.get(i).lng * points.get(j).lat) / 2;
+        return sum;
+    }
+}
@@ -0,0 +1,61 @@
+package com.skedgo.generator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class ReadPolygonsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Big ragged polygons, which take a while to tidy, between small squares, which don't, so that the threads finish
+     * them out of order.  The polygons must still come out in the file's order, the same as on one thread.
+     */
+    @Test
+    public void inTheFilesOrderOnAnyNumberOfThreads() throws Exception {
+        File file = folder.newFile("polygons.json");
+        Random random = new Random(42);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("[");
+            for (int i=0; i < 40; i++) {
+                if (i > 0)
+                    writer.write(",\n");
+                writer.write("{\"tz\":\"Zone/" + i + "\",\"polygon\":[");
+                double lat = (i / 8) * 4, lng = (i % 8) * 4;
+                int n = i % 2 == 0 ? 4000 : 4;
+                for (int k=0; k < n; k++) {
+                    // Clockwise, with lng as x and lat as y:
+                    double angle = 2 * Math.PI * (k + 0.5) / n;
+                    double r = i % 2 == 0 ? 1 + 0.05 * random.nextDouble() : 1;
+                    writer.write((k > 0 ? "," : "") + "[" + (lng + r * Math.sin(angle)) + "," + (lat + r * Math.cos(angle)) + "]");
+                }
+                writer.write("]}");
+            }
+            writer.write("]");
+        }
+
+        TimeZoneMapperConverter one = new TimeZoneMapperConverter();
+        one.readPolygons(file.getPath(), 1);
+        TimeZoneMapperConverter four = new TimeZoneMapperConverter();
+        four.readPolygons(file.getPath(), 4);
+
+        List<TimeZoneMapperConverter.TimezonePolygon> expected = one.inputPolygons, actual = four.inputPolygons;
+        assertEquals(40, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i=0; i < expected.size(); i++) {
+            assertEquals("Zone/" + i, expected.get(i).tzstring);
+            assertEquals(expected.get(i).tzstring, actual.get(i).tzstring);
+            assertEquals(expected.get(i).tz, actual.get(i).tz);
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.skedgo.generator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class SegmentSweepTest {
+    @Test
+    public void crossingBars() {
+        // An east-west bar, and a north-south one that crosses it north of its middle, so that neither has a
+        // point inside the other, and swapping lat and lng would take them apart:
+        Polygon eastWest = polygon(14,0, 16,0, 16,10, 14,10);
+        Polygon northSouth = polygon(10,4, 20,4, 20,6, 10,6);
+        assertTrue(eastWest.intersects(northSouth));
+        assertTrue(northSouth.intersects(eastWest));
+
+        // Moved east, it still overlaps the bar's bounding box in latitude, but not the bar:
+        Polygon apart = polygon(10,14, 20,14, 20,16, 10,16);
+        Polygon wide = polygon(14,0, 16,0, 16,20, 14,20);
+        assertFalse(eastWest.intersects(apart));
+        assertTrue(wide.intersects(apart));
+    }
+
+    @Test
+    public void bowTie() {
+        assertTrue(polygon(0,0, 10,10, 10,0, 0,10).hasSelfIntersection());
+        // The crossing is between edges that are neither first nor last:
+        assertTrue(polygon(0,0, 10,0, 10,10, 6,10, 2,4, 2,6, 6,0.5, 0,10).hasSelfIntersection());
+        assertFalse(polygon(0,0, 10,0, 10,10, 6,10, 2,4, 2,6, 0,10).hasSelfIntersection());
+        assertFalse(polygon(0,0, 0,10, 10,10, 10,0).hasSelfIntersection());
+    }
+
+    /** Random polygons, many of them crossing themselves and each other, checked against testing every pair of edges. */
+    @Test
+    public void agreesWithEveryPair() {
+        Random random = new Random(5);
+        int crossing = 0, selfCrossing = 0;
+        for (int i=0; i < 4000; i++) {
+            Polygon p = random(random), q = random(random);
+            boolean crosses = everyPair(p, q);
+            assertEquals(p + " and " + q, crosses, p.intersects(q));
+            boolean crossesItself = everyPairOfItself(p);
+            assertEquals(p.toString(), crossesItself, p.hasSelfIntersection());
+            if (crosses) crossing++;
+            if (crossesItself) selfCrossing++;
+        }
+        // Both answers must be well represented:
+        assertTrue(crossing > 400 && crossing < 3600);
+        assertTrue(selfCrossing > 400 && selfCrossing < 3600);
+    }
+
+    private static boolean everyPair(Polygon p, Polygon q)
+    {
+        if (! p.box.intersects(q.box))
+            return false;
+        if (q.contains(p.points.get(0)) || p.contains(q.points.get(0)))
+            return true;
+        int n = p.points.size(), m = q.points.size();
+        for (int i=0; i < n; i++) {
+            LatLong A = p.points.get(i), B = p.points.get((i+1) % n);
+            for (int j=0; j < m; j++) {
+                LatLong C = q.points.get(j), D = q.points.get((j+1) % m);
+                if (Polygon.segmentIntersects(A.lng,A.lat, B.lng,B.lat, C.lng,C.lat, D.lng,D.lat))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean everyPairOfItself(Polygon p)
+    {
+        int n = p.points.size();
+        for (int i=0; i < n; i++) {
+            LatLong A = p.points.get(i), B = p.points.get((i+1) % n);
+            for (int j=i+1; j < n; j++) {
+                LatLong C = p.points.get(j), D = p.points.get((j+1) % n);
+                if (A == C || A == D || B == C || B == D)
+                    continue;
+                if (Polygon.segmentIntersectPointWorker(A,B, C,D) != null)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A star around a point in a square 1.5 degrees across, its points in order of their angle, and half the time with two of them
+     * swapped, so that it usually crosses itself.  Some are on a grid, so that edges touch and run along each other.
+     */
+    private static Polygon random(Random random)
+    {
+        int n = 3 + random.nextInt(30);
+        double lat = random.nextDouble() * 1.5, lng = random.nextDouble() * 1.5;
+        boolean grid = random.nextBoolean();
+        double[] ys = new double[n], xs = new double[n];
+        for (int i=0; i < n; i++) {
+            double angle = -2 * Math.PI * (i + random.nextDouble()) / n;
+            double r = 0.5 * random.nextDouble();
+            ys[i] = lat + r * Math.cos(angle);
+            xs[i] = lng + r * Math.sin(angle);
+            if (grid) {
+                ys[i] = Math.round(ys[i] * 10) / 10.0;
+                xs[i] = Math.round(xs[i] * 10) / 10.0;
+            }
+        }
+        if (random.nextBoolean()) {
+            int i = random.nextInt(n), j = random.nextInt(n);
+            double y = ys[i], x = xs[i];
+            ys[i] = ys[j];
+            xs[i] = xs[j];
+            ys[j] = y;
+            xs[j] = x;
+        }
+        Polygon polygon = new Polygon();
+        for (int i=0; i < n; i++)
+            polygon.addPoint(ys[i], xs[i]);
+        return polygon;
+    }
+
+    private static Polygon polygon(double... latLngs)
+    {
+        Polygon polygon = new Polygon();
+        for (int i=0; i < latLngs.length; i += 2)
+            polygon.addPoint(latLngs[i], latLngs[i+1]);
+        return polygon;
+    }
+}
@@ -0,0 +1,147 @@
+package com.skedgo.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Measures the edge crossing tests on polygons with many points, the kind that high-resolution boundaries give:
+ * separateSelfIntersectingPolygons(), hasSelfIntersection() and intersects(Polygon), all of which use SegmentSweep.
+ * Alongside separating runs Previous, a copy of findInternalIntersections() as it was, with its list of active edges,
+ * so the two can be compared on the same polygons, and checked to find the same crossing.
+ *
+ * The polygons are synthetic: "coast" is a square whose edges are repeatedly split and the midpoints moved, like a
+ * coastline, and "strip" a tall thin one whose sides zigzag, like a border that runs north-south.
+ *
+ * Run with:  java -cp target/classes:target/test-classes com.skedgo.generator.SweepBenchmark [points] [polygons]
+ */
+public class SweepBenchmark {
+
+    public static void main(String[] args)
+    {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Random random = new Random(42);
+        for (String kind : new String[] { "coast", "strip" }) {
+            List<Polygon> polygons = new ArrayList<>();
+            for (int i=0; i < count; i++)
+                polygons.add(kind.equals("coast") ? coast(random, n) : strip(random, n));
+            for (int round = 0; round < 5; round++) {
+                long t0 = System.nanoTime();
+                int found = 0;
+                for (Polygon polygon : polygons)
+                    if (Previous.findInternalIntersection(polygon.points) != null) found++;
+                long t1 = System.nanoTime();
+                int parts = 0;
+                for (Polygon polygon : polygons)
+                    parts += new Polygon(polygon).separateSelfIntersectingPolygons().size();
+                long t2 = System.nanoTime();
+                int self = 0;
+                for (Polygon polygon : polygons)
+                    if (polygon.hasSelfIntersection()) self++;
+                long t3 = System.nanoTime();
+                int overlapping = 0;
+                for (int i=0; i+1 < polygons.size(); i++)
+                    if (polygons.get(i).intersects(polygons.get(i+1))) overlapping++;
+                long t4 = System.nanoTime();
+                System.out.printf("%s, %d points, round %d: first crossing before %.1f ms; separating %.1f ms, hasSelfIntersection %.1f ms, "
+                        + "intersects %.2f ms per polygon  (%d %d %d %d)%n", kind, polygons.get(0).points.size(), round,
+                        (t1 - t0) / 1e6 / count, (t2 - t1) / 1e6 / count, (t3 - t2) / 1e6 / count, (t4 - t3) / 1e6 / Math.max(1, count - 1),
+                        found, parts, self, overlapping);
+            }
+            for (Polygon polygon : polygons) {
+                int[] before = Previous.findInternalIntersection(polygon.points);
+                SegmentSweep sweep = new SegmentSweep(polygon.points, null);
+                int[] now = sweep.find(true, 0, (older, newer) -> {
+                    LatLong A = sweep.a(older), B = sweep.b(older), C = sweep.a(newer), D = sweep.b(newer);
+                    return A != C && A != D && B != C && B != D && Polygon.segmentIntersectPointWorker(A,B,C,D) != null;
+                });
+                if (! Arrays.equals(before, now))
+                    throw new AssertionError(Arrays.toString(before) + " before, " + Arrays.toString(now) + " now");
+            }
+        }
+    }
+
+    static Polygon coast(Random random, int n)
+    {
+        List<double[]> pts = new ArrayList<>(Arrays.asList(new double[] { 0, 0 }, new double[] { 0, 10 },
+                new double[] { -10, 10 }, new double[] { -10, 0 }));
+        while (pts.size() < n) {
+            List<double[]> next = new ArrayList<>();
+            for (int i=0; i < pts.size(); i++) {
+                double[] p = pts.get(i), q = pts.get((i+1) % pts.size());
+                double d = (random.nextDouble() - 0.5) * 0.3;
+                next.add(p);
+                next.add(new double[] { (p[0] + q[0]) / 2 + d * (q[1] - p[1]), (p[1] + q[1]) / 2 - d * (q[0] - p[0]) });
+            }
+            pts = next;
+        }
+        Polygon polygon = new Polygon();
+        for (double[] pt : pts)
+            polygon.addPoint(pt[0], pt[1]);
+        return polygon;
+    }
+
+    static Polygon strip(Random random, int n)
+    {
+        Polygon polygon = new Polygon();
+        for (int i=0; i < n/2; i++)
+            polygon.addPoint(i * 0.01, 1 + 0.5 * random.nextDouble());
+        for (int i = n/2 - 1; i >= 0; i--)
+            polygon.addPoint(i * 0.01, -1 - 0.5 * random.nextDouble());
+        return polygon;
+    }
+
+    /** findInternalIntersections() as it was, giving the crossing edges, older first. */
+    private static class Previous {
+        static class Segment2 extends BoundingBox {
+            final List<LatLong> points;
+            final int i;
+
+            Segment2(List<LatLong> _points, int _i)
+            {
+                super(false);
+                points = _points;
+                i = _i;
+                extendToFit(A());
+                extendToFit(B());
+            }
+
+            LatLong A() { return points.get(i); }
+            LatLong B() { return points.get(i+1>=points.size()?0:i+1); }
+        }
+
+        static int[] findInternalIntersection(List<LatLong> points)
+        {
+            List<Segment2> segs = new ArrayList<>();
+            for (int i=0; i < points.size(); i++)
+                segs.add(new Segment2(points, i));
+            Segment2[] entering = segs.toArray(new Segment2[0]);
+            Segment2[] leaving = segs.toArray(new Segment2[0]);
+            Arrays.sort(entering, Comparator.comparingDouble(seg -> seg.lng1));
+            Arrays.sort(leaving, Comparator.comparingDouble(seg -> seg.lng2));
+            int e=0, l = 0;
+            List<Segment2> loom = new ArrayList<>();
+            do {
+                if (e < entering.length && entering[e].lng1 <= leaving[l].lng2) {
+                    Segment2 newSeg = entering[e++];
+                    for (Segment2 old : loom) {
+                        if (old.intersects(newSeg)) {
+                            LatLong A = old.A(), B = old.B(), C = newSeg.A(), D = newSeg.B();
+                            if (A == C || A == D || B == C || B == D)
+                                continue;
+                            if (Polygon.segmentIntersectPointWorker(A,B,C,D) != null)
+                                return new int[] { old.i, newSeg.i };
+                        }
+                    }
+                    loom.add(newSeg);
+                }
+                else loom.remove(leaving[l++]);
+            } while (l < leaving.length);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.skedgo.generator.parsing;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class GeoJsonReaderTest {
+    // Squares, as [lng,lat] rings.  Going east first is anticlockwise, with lng as x and lat as y, and north first clockwise:
+    private static final String ANTICLOCKWISE = "[[0,0],[10,0],[10,10],[0,10],[0,0]]";
+    private static final String CLOCKWISE = "[[0,0],[0,10],[10,10],[10,0],[0,0]]";
+    private static final String HOLE_CLOCKWISE = "[[2,2],[2,4],[4,4],[4,2],[2,2]]";
+    private static final String HOLE_ANTICLOCKWISE = "[[2,2],[4,2],[4,4],[2,4],[2,2]]";
+
+    @Test
+    public void outerRingsClockwiseAndHolesAnticlockwise() throws Exception {
+        // As RFC 7946 has them, outer rings anticlockwise and holes clockwise:
+        PolygonReader reader = read("{\"type\":\"Polygon\",\"coordinates\":[" + ANTICLOCKWISE + "," + HOLE_CLOCKWISE + "]}");
+        assertTrue(reader.next());
+        assertFalse(reader.hole);
+        assertRing(CLOCKWISE, reader);
+        assertTrue(reader.next());
+        assertTrue(reader.hole);
+        assertRing(HOLE_ANTICLOCKWISE, reader);
+        assertFalse(reader.next());
+
+        // And already the way round they come out, as shapefiles have them:
+        reader = read("{\"type\":\"Polygon\",\"coordinates\":[" + CLOCKWISE + "," + HOLE_ANTICLOCKWISE + "]}");
+        assertTrue(reader.next());
+        assertFalse(reader.hole);
+        assertRing(CLOCKWISE, reader);
+        assertTrue(reader.next());
+        assertTrue(reader.hole);
+        assertRing(HOLE_ANTICLOCKWISE, reader);
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void eachPartOfAMultiPolygonHasItsOwnHoles() throws Exception {
+        // The first part has no hole, and the second's outer ring isn't one, though it isn't the feature's first ring:
+        PolygonReader reader = read("{\"type\":\"MultiPolygon\",\"coordinates\":[[" + CLOCKWISE + "],[" + ANTICLOCKWISE + ","
+                + HOLE_CLOCKWISE + "," + HOLE_ANTICLOCKWISE + "]]}");
+        boolean[] holes = { false, false, true, true };
+        String[] rings = { CLOCKWISE, CLOCKWISE, HOLE_ANTICLOCKWISE, HOLE_ANTICLOCKWISE };
+        for (int i=0; i < holes.length; i++) {
+            assertTrue(reader.next());
+            assertEquals("Europe/Paris", reader.tz);
+            assertEquals(holes[i], reader.hole);
+            assertRing(rings[i], reader);
+        }
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void skipsWhatIsntATimezonePolygon() throws Exception {
+        String json = "{\"type\":\"FeatureCollection\", \"bbox\":[0,0,10,10], \"features\":[\n"
+                + "{\"type\":\"Feature\",\"properties\":{\"tzid\":\"Point/Zone\"},\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}},\n"
+                + "{\"type\":\"Feature\",\"properties\":{\"tzid\":\"No/Geometry\"},\"geometry\":null},\n"
+                + "{\"type\":\"Feature\",\"properties\":null,\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[" + CLOCKWISE + "]}},\n"
+                + "{\"geometry\":{\"coordinates\":[[[5,6,100],[5,7,100],[6,7,100],[5,6,100]]],\"type\":\"Polygon\"},"
+                + "\"properties\":{\"name\":\"x\",\"TZID\":\"Asia/Tokyo\"},\"type\":\"Feature\"}\n"
+                + "], \"crs\":null}";
+        PolygonReader reader = new GeoJsonReader(new StringReader(json));
+        // Keys in any order, and altitudes ignored:
+        assertTrue(reader.next());
+        assertEquals("Asia/Tokyo", reader.tz);
+        assertFalse(reader.hole);
+        assertRing("[[5,6],[5,7],[6,7],[5,6]]", reader);
+        assertFalse(reader.next());
+        assertFalse(reader.next());
+
+        assertFalse(new GeoJsonReader(new StringReader("{\"type\":\"FeatureCollection\",\"features\":[]}")).next());
+    }
+
+    private static PolygonReader read(String geometry)
+    {
+        return new GeoJsonReader(new StringReader("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\","
+                + "\"properties\":{\"tzid\":\"Europe/Paris\"},\"geometry\":" + geometry + "}]}"));
+    }
+
+    /** That the reader's current ring is 'ring', given as [lng,lat] points. */
+    private static void assertRing(String ring, PolygonReader reader) throws Exception
+    {
+        JSONArray points = new JSONArray(ring);
+        double[] lats = new double[points.length()], lngs = new double[points.length()];
+        for (int i=0; i < points.length(); i++) {
+            lngs[i] = points.getJSONArray(i).getDouble(0);
+            lats[i] = points.getJSONArray(i).getDouble(1);
+        }
+        assertArrayEquals(ring, lats, PolygonJsonReaderTest.slice(reader.lats, reader.size), 0);
+        assertArrayEquals(ring, lngs, PolygonJsonReaderTest.slice(reader.lngs, reader.size), 0);
+    }
+}
@@ -0,0 +1,56 @@
+package com.skedgo.generator.parsing;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+public class JSONTokenerTest {
+    @Test
+    public void nextDoubleMatchesParseDouble() throws Exception {
+        StringBuilder json = new StringBuilder();
+        Random random = new Random(20);
+        for (int i=0; i < 100000; i++) {
+            double d = (random.nextDouble() - 0.5) * 360;
+            switch (i % 5) {
+                case 0: json.append(d); break;                                      // all 17 digits
+                case 1: json.append(String.format("%.6f", d)); break;               // typical GeoJSON
+                case 2: json.append(Math.round(d * 1e4) / 1e4); break;
+                case 3: json.append(String.format("%.3e", d * Math.pow(10, random.nextInt(60) - 30))); break;
+                default: json.append((long) d); break;
+            }
+            json.append(",");
+        }
+        json.append("0,-0,0.0,1e22,1e23,9007199254740993,123456789012345,1234567890123456,0.000000000000000000001234,"
+                + "-1E-5,2e+3,0.1,0.30000000000000004,1.7976931348623157e308,4.9e-324,1e999");
+        String[] numbers = json.toString().split(",");
+        JSONTokener x = new JSONTokener(new StringReader(json.toString()));
+        for (String number : numbers) {
+            double expected = Double.parseDouble(number);
+            double actual = x.nextDouble();
+            if (Double.doubleToRawLongBits(expected) != Double.doubleToRawLongBits(actual))
+                fail(number + " read as " + actual + ", not " + expected);
+            x.nextClean();
+        }
+        assertEquals(0, x.nextClean());
+    }
+
+    @Test
+    public void nextDoubleOnlyTakesJsonNumbers() throws Exception {
+        for (String json : new String[] { "+1", ".5", "1.", "-", "-.5", "1e", "1e+", "x", "" }) {
+            try {
+                new JSONTokener(new StringReader(json)).nextDouble();
+                fail(json);
+            } catch (JSONException expected) {
+            }
+        }
+        // "01" is a zero followed by something else, which is up to the caller to reject:
+        JSONTokener x = new JSONTokener(new StringReader("01"));
+        assertEquals(0, x.nextDouble(), 0);
+        assertEquals('1', x.next());
+    }
+}
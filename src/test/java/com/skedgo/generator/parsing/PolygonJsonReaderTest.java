@@ -0,0 +1,85 @@
+package com.skedgo.generator.parsing;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class PolygonJsonReaderTest {
+    @Test
+    public void readsEachPolygonInTurn() throws Exception {
+        String json = " [ {\"tz\":\"Europe/Paris\", \"polygon\":[[2.5,48.5],[3,49],[3.5,48]]},\n"
+                + "{\"id\":7, \"extra\":{\"nested\":[1,[2,3]],\"tz\":\"Not/This\"}, \"polygon\":[ [ -1e1 , -2.25 ] ], \"tz\":\"Asia/Tokyo\"},\n"
+                + "{\"polygon\":[], \"tz\":\"uninhabited\"} ]";
+        try (PolygonReader reader = new PolygonJsonReader(new StringReader(json))) {
+            assertTrue(reader.next());
+            assertEquals("Europe/Paris", reader.tz);
+            assertEquals(3, reader.size);
+            assertArrayEquals(new double[] { 48.5, 49, 48 }, slice(reader.lats, reader.size), 0);
+            assertArrayEquals(new double[] { 2.5, 3, 3.5 }, slice(reader.lngs, reader.size), 0);
+
+            // Keys in any order, and others skipped, even if they have a "tz" of their own inside them:
+            assertTrue(reader.next());
+            assertEquals("Asia/Tokyo", reader.tz);
+            assertEquals(1, reader.size);
+            assertEquals(-2.25, reader.lats[0], 0);
+            assertEquals(-10, reader.lngs[0], 0);
+
+            assertTrue(reader.next());
+            assertEquals("uninhabited", reader.tz);
+            assertEquals(0, reader.size);
+
+            assertFalse(reader.next());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void growsForBigPolygons() throws Exception {
+        StringBuilder json = new StringBuilder("[{\"tz\":\"Big/One\",\"polygon\":[");
+        for (int i=0; i < 5000; i++)
+            json.append(i > 0 ? "," : "").append("[").append(i).append(",").append(-i).append("]");
+        json.append("]},{\"tz\":\"Small/One\",\"polygon\":[[1,2]]}]");
+        PolygonReader reader = new PolygonJsonReader(new StringReader(json.toString()));
+        assertTrue(reader.next());
+        assertEquals(5000, reader.size);
+        assertEquals(-4999, reader.lats[4999], 0);
+        assertEquals(4999, reader.lngs[4999], 0);
+        assertTrue(reader.next());
+        assertEquals(1, reader.size);
+        assertEquals(2, reader.lats[0], 0);
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void emptyArray() throws Exception {
+        assertFalse(new PolygonJsonReader(new StringReader("[ ]")).next());
+    }
+
+    @Test
+    public void badInput() throws Exception {
+        for (String json : new String[] { "{}", "[{\"polygon\":[[1,2]]}]", "[{\"tz\":\"A/B\"}]", "[{\"tz\":\"A/B\",\"polygon\":[[1]]}]",
+                "[{\"tz\":\"A/B\",\"polygon\":[]} {\"tz\":\"A/B\",\"polygon\":[]}]" }) {
+            try {
+                PolygonReader reader = new PolygonJsonReader(new StringReader(json));
+                while (reader.next())
+                    ;
+                fail(json);
+            } catch (JSONException expected) {
+            }
+        }
+    }
+
+    static double[] slice(double[] values, int size)
+    {
+        double[] result = new double[size];
+        System.arraycopy(values, 0, result, 0, size);
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+package com.skedgo.generator.parsing;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class ShapefileReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsEachPartOfEachShape() throws Exception {
+        List<double[][]> shapes = new ArrayList<>();
+        // Two parts, each as (lng,lat) points:
+        shapes.add(new double[][] { { 2, 48, 2, 49, 3, 49, 2, 48 }, { 10, 10, 10, 11, 11, 10, 10, 10 } });
+        shapes.add(null);
+        shapes.add(new double[][] { { 139, 35, 140, 36, 141, 35, 139, 35 } });
+        File shp = write("tz", shapes, new String[] { "Europe/Paris", "Null/Shape", "Asia/Tokyo" }, ShapefileReader.POLYGON_Z, "TZID");
+
+        try (PolygonReader reader = new ShapefileReader(shp.getPath())) {
+            assertTrue(reader.next());
+            assertEquals("Europe/Paris", reader.tz);
+            assertEquals(4, reader.size);
+            assertArrayEquals(new double[] { 48, 49, 49, 48 }, PolygonJsonReaderTest.slice(reader.lats, reader.size), 0);
+            assertArrayEquals(new double[] { 2, 2, 3, 2 }, PolygonJsonReaderTest.slice(reader.lngs, reader.size), 0);
+
+            assertTrue(reader.next());
+            assertEquals("Europe/Paris", reader.tz);
+            assertArrayEquals(new double[] { 10, 11, 10, 10 }, PolygonJsonReaderTest.slice(reader.lats, reader.size), 0);
+
+            // The null shape is skipped, and the Z values after the points ignored:
+            assertTrue(reader.next());
+            assertEquals("Asia/Tokyo", reader.tz);
+            assertArrayEquals(new double[] { 35, 36, 35, 35 }, PolygonJsonReaderTest.slice(reader.lats, reader.size), 0);
+            assertArrayEquals(new double[] { 139, 140, 141, 139 }, PolygonJsonReaderTest.slice(reader.lngs, reader.size), 0);
+
+            assertFalse(reader.next());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void needsATzidColumn() throws Exception {
+        List<double[][]> shapes = new ArrayList<>();
+        shapes.add(new double[][] { { 2, 48, 2, 49, 3, 49, 2, 48 } });
+        File shp = write("name", shapes, new String[] { "Europe/Paris" }, ShapefileReader.POLYGON, "NAME");
+        try {
+            new ShapefileReader(shp.getPath());
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("TZID"));
+        }
+    }
+
+    @Test
+    public void onlyPolygons() throws Exception {
+        List<double[][]> shapes = new ArrayList<>();
+        shapes.add(new double[][] { { 2, 48, 2, 49 } });
+        File shp = write("line", shapes, new String[] { "Europe/Paris" }, 3, "TZID");
+        try (PolygonReader reader = new ShapefileReader(shp.getPath())) {
+            reader.next();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * Writes 'name'.shp, .shx and .dbf, with a shape of the given type for each array of parts, or a null shape, and
+     * the timezones in a 'column' column of the .dbf, after an ID column.  Z and M shapes get zero Z and M values.
+     */
+    private File write(String name, List<double[][]> shapes, String[] tzs, int type, String column) throws IOException
+    {
+        List<ByteBuffer> records = new ArrayList<>();
+        for (double[][] parts : shapes) {
+            if (parts == null) {
+                records.add(little(4).putInt(ShapefileReader.NULL_SHAPE));
+                continue;
+            }
+            int numPoints = 0;
+            for (double[] part : parts)
+                numPoints += part.length / 2;
+            boolean z = type == ShapefileReader.POLYGON_Z, m = z || type == ShapefileReader.POLYGON_M;
+            ByteBuffer record = little(44 + 4 * parts.length + 16 * numPoints + (z ? 16 + 8 * numPoints : 0) + (m ? 16 + 8 * numPoints : 0));
+            record.putInt(type);
+            for (int i=0; i < 4; i++)
+                record.putDouble(0);        // The bounding box, which the reader doesn't need.
+            record.putInt(parts.length).putInt(numPoints);
+            int start = 0;
+            for (double[] part : parts) {
+                record.putInt(start);
+                start += part.length / 2;
+            }
+            for (double[] part : parts)
+                for (double value : part)
+                    record.putDouble(value);
+            while (record.hasRemaining())
+                record.putDouble(0);
+            records.add(record);
+        }
+
+        ByteBuffer shp = header(100 + 8 * records.size() + records.stream().mapToInt(ByteBuffer::capacity).sum(), type);
+        ByteBuffer shx = header(100 + 8 * records.size(), type);
+        for (int i=0; i < records.size(); i++) {
+            ByteBuffer record = records.get(i);
+            shx.putInt(shp.position() / 2).putInt(record.capacity() / 2);
+            shp.order(ByteOrder.BIG_ENDIAN).putInt(i + 1).putInt(record.capacity() / 2);
+            shp.put(record.array());
+        }
+
+        // The .dbf: its header, a 4-character ID column and a 20-character timezone column, and a record for each shape:
+        int recordLength = 1 + 4 + 20;
+        ByteBuffer dbf = little(32 + 2 * 32 + 1 + tzs.length * recordLength + 1);
+        dbf.put((byte) 3).put(new byte[3]).putInt(tzs.length).putShort((short) (32 + 2 * 32 + 1)).putShort((short) recordLength);
+        dbf.position(32);
+        column(dbf, "ID", 'N', 4);
+        column(dbf, column, 'C', 20);
+        dbf.put((byte) 0x0d);
+        for (int i=0; i < tzs.length; i++)
+            dbf.put(String.format(" %4d%-20s", i, tzs[i]).getBytes(StandardCharsets.ISO_8859_1));
+        dbf.put((byte) 0x1a);
+
+        File base = new File(folder.getRoot(), name);
+        Files.write(new File(base + ".shp").toPath(), shp.array());
+        Files.write(new File(base + ".shx").toPath(), shx.array());
+        Files.write(new File(base + ".dbf").toPath(), dbf.array());
+        return new File(base + ".shp");
+    }
+
+    /** A .shp or .shx header: the file code and length big-endian, and the version and shape type little-endian. */
+    private static ByteBuffer header(int length, int type)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(9994).putInt(24, length / 2);
+        buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(28, 1000).putInt(32, type);
+        buffer.order(ByteOrder.BIG_ENDIAN).position(100);
+        return buffer;
+    }
+
+    private static ByteBuffer little(int length)
+    {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void column(ByteBuffer dbf, String name, char type, int length)
+    {
+        byte[] descriptor = new byte[32];
+        byte[] bytes = name.getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(bytes, 0, descriptor, 0, bytes.length);
+        descriptor[11] = (byte) type;
+        descriptor[16] = (byte) length;
+        dbf.put(descriptor);
+    }
+}